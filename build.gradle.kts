@@ -2,6 +2,7 @@ plugins {
 	java
 	id("org.springframework.boot") version "3.5.6"
 	id("io.spring.dependency-management") version "1.1.7"
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.app"
@@ -20,6 +21,18 @@ configurations {
 	}
 }
 
+// The Vector API kernel lives in its own source set, so only its compilation needs the incubator module (and prints
+// javac's incubating warning). VectorMath loads it reflectively and falls back to scalar code without the module.
+val vectorApiArgs = listOf("--add-modules", "jdk.incubator.vector")
+
+val vectorApi by sourceSets.creating {
+	compileClasspath += sourceSets.main.get().output
+}
+
+tasks.named<JavaCompile>(vectorApi.compileJavaTaskName) {
+	options.compilerArgs.addAll(vectorApiArgs)
+}
+
 repositories {
 	mavenCentral()
 }
@@ -28,6 +41,8 @@ extra["springAiVersion"] = "1.0.3"
 
 dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-web")
+	implementation("org.springframework.boot:spring-boot-starter-actuator")
+	runtimeOnly("io.micrometer:micrometer-registry-prometheus")
 
 	implementation("org.springframework.ai:spring-ai-starter-model-openai")
     implementation("org.springframework.ai:spring-ai-starter-vector-store-elasticsearch")
@@ -35,6 +50,7 @@ dependencies {
     implementation("org.springframework.ai:spring-ai-rag")
 
     implementation("org.apache.pdfbox:pdfbox:3.0.5")
+    implementation("com.github.ben-manes.caffeine:caffeine")
 
     annotationProcessor("org.projectlombok:lombok")
     compileOnly("org.projectlombok:lombok")
@@ -43,6 +59,8 @@ dependencies {
 
     testImplementation("org.springframework.boot:spring-boot-starter-test")
 	testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+	runtimeOnly(vectorApi.output)
 }
 
 dependencyManagement {
@@ -51,6 +69,31 @@ dependencyManagement {
 	}
 }
 
+// bootRun, the load test and the benchmarks resolve the module so dot products use the Vector API kernel.
+tasks.withType<JavaExec> {
+	jvmArgs(vectorApiArgs)
+}
+
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+tasks.register<JavaExec>("loadTest") {
+	group = "verification"
+	description = "Load-tests /extract, /ask and /chat against a local OpenAI stand-in and the embedded vector store; pass options with --args."
+	classpath = sourceSets["test"].runtimeClasspath
+	mainClass = "com.app.payslip.poc.loadtest.PayslipLoadTest"
+}
+
+// CPU-bound hot paths (document building, hashing, diffing, rendering) under src/jmh. Run with ./gradlew jmh; narrow
+// it down with -PjmhIncludes=HashUtil. Results are written as JSON for comparison between runs.
+jmh {
+	jmhVersion = "1.37"
+	resultFormat = "JSON"
+	resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+	fork = 1
+	warmupIterations = 3
+	iterations = 5
+	jvmArgsAppend.addAll(vectorApiArgs)
+	providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
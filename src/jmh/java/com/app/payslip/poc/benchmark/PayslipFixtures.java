@@ -0,0 +1,83 @@
+package com.app.payslip.poc.benchmark;
+
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO.*;
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO.Extras.Benefit;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic payslips for the benchmarks: the same employee in a given month, with a configurable number of
+ * benefit lines. Amounts drift a little per month and every fifth benefit only exists in odd months, so comparing two
+ * consecutive months yields field changes as well as added and removed benefits.
+ */
+public final class PayslipFixtures {
+
+    private PayslipFixtures() {
+    }
+
+    public static ExtractedPayslipDataDTO payslip(YearMonth month, int benefitCount) {
+        BigDecimal drift = BigDecimal.valueOf(month.getMonthValue() * 12L, 0);
+        BigDecimal gross = new BigDecimal("4250.00").add(drift);
+
+        List<Benefit> benefits = new ArrayList<>(benefitCount);
+        for (int i = 0; i < benefitCount; i++) {
+            if (i % 5 == 4 && month.getMonthValue() % 2 == 0) continue;
+            benefits.add(Benefit.builder()
+                    .code("%04d".formatted(1000 + i))
+                    .label("Benefit line " + i)
+                    .category(i % 3 == 0 ? "allowance" : "deduction")
+                    .amount(BigDecimal.valueOf(1_000 + i * 37L + month.getMonthValue(), 2))
+                    .direction(i % 3 == 0 ? "plus" : "minus")
+                    .taxable(i % 2 == 0)
+                    .build());
+        }
+
+        return ExtractedPayslipDataDTO.builder()
+                .personal(PersonalInfo.builder()
+                        .name("Jan Janssens")
+                        .address("Kerkstraat 12 bus 3, 2000 Antwerpen, Belgium")
+                        .nationalId("85.07.30-033.61")
+                        .maritalStatus("married")
+                        .dependents(2)
+                        .build())
+                .employer(EmployerInfo.builder()
+                        .name("Acme Logistics NV")
+                        .address("Industrieweg 100, 9000 Gent, Belgium")
+                        .employerNumber("0123.456.789")
+                        .build())
+                .employment(EmploymentInfo.builder()
+                        .employeeNumber("E-004211")
+                        .jobTitle("Warehouse supervisor")
+                        .status("bediende")
+                        .payCategory("monthly")
+                        .baseMonthlySalary(new BigDecimal("3900.00").add(drift))
+                        .build())
+                .period(PeriodInfo.builder()
+                        .periodStart(month.atDay(1))
+                        .periodEnd(month.atEndOfMonth())
+                        .payDate(month.atEndOfMonth().minusDays(2))
+                        .currency("EUR")
+                        .build())
+                .financial(FinancialInfo.builder()
+                        .gross(gross)
+                        .taxable(gross.multiply(new BigDecimal("0.8693")).setScale(2, RoundingMode.HALF_UP))
+                        .socialSecurity(gross.multiply(new BigDecimal("0.1307")).setScale(2, RoundingMode.HALF_UP))
+                        .withholdingTax(new BigDecimal("987.45").add(drift))
+                        .net(new BigDecimal("2678.10").add(drift))
+                        .paymentIban("BE68 5390 0754 7034")
+                        .paymentBic("GKCCBEBB")
+                        .build())
+                .extras(Extras.builder()
+                        .mealVoucherContributionEmployer(new BigDecimal("6.91"))
+                        .mealVoucherContributionEmployee(new BigDecimal("1.09"))
+                        .mealVoucherCount(20 + month.getMonthValue() % 3)
+                        .benefits(benefits)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.benchmark.PayslipFixtures;
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
+import com.app.payslip.poc.model.PayslipComparisonResultDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The non-LLM part of a comparison: the field and benefit diff, and the JSON views of both payslips that go into the
+ * prompt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PayslipCompareBenchmark {
+
+    @Param({"5", "40", "200"})
+    public int benefitCount;
+
+    private PayslipComparator comparator;
+    private ExtractedPayslipDataDTO previous;
+    private ExtractedPayslipDataDTO current;
+
+    @Setup
+    public void setUp() {
+        comparator = new PayslipComparator();
+        previous = PayslipFixtures.payslip(YearMonth.of(2024, 2), benefitCount);
+        current = PayslipFixtures.payslip(YearMonth.of(2024, 3), benefitCount);
+    }
+
+    @Benchmark
+    public PayslipComparisonResultDTO comparePayslips() {
+        return comparator.comparePayslips(previous, current);
+    }
+
+    @Benchmark
+    public String jsonView() {
+        return PayslipCompareService.JsonView.from(current);
+    }
+}
@@ -0,0 +1,40 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.benchmark.PayslipFixtures;
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Document building in {@link PayslipIndexService}: the text blocks, metadata maps and per-document short hashes
+ * produced for every indexed payslip, before anything is embedded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PayslipIndexBenchmark {
+
+    @Param({"5", "40"})
+    public int benefitCount;
+
+    private PayslipIndexService indexService;
+    private ExtractedPayslipDataDTO payslip;
+    private byte[] originalBytes;
+
+    @Setup
+    public void setUp() {
+        indexService = new PayslipIndexService(null, null, null, null);
+        payslip = PayslipFixtures.payslip(YearMonth.of(2024, 3), benefitCount);
+        originalBytes = "%PDF-1.7 benchmark payload".repeat(4_000).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public List<Document> buildDocuments() {
+        return indexService.buildDocuments(payslip, "loonbrief-2024-03.pdf", originalBytes);
+    }
+}
@@ -0,0 +1,77 @@
+package com.app.payslip.poc.util;
+
+import com.app.payslip.poc.util.FileUtil.PageMode;
+import com.app.payslip.poc.util.FileUtil.RenderOptions;
+import com.app.payslip.poc.util.ImagePreprocessor.EncodedImage;
+import com.app.payslip.poc.util.ImagePreprocessor.ImageFormat;
+import com.app.payslip.poc.util.ImagePreprocessor.ImageOptions;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering and encoding of the bundled sample payslips per image preprocessing profile: the PDF is rendered page by
+ * page and encoded, the PNG samples are decoded, scaled and re-encoded (or passed through).
+ * <p>
+ * Next to the latency, {@link Payload} reports what one call would send to the vision model: the encoded bytes, the
+ * pixels and the estimated image tokens. Extraction accuracy needs the live model; compare
+ * {@code /api/payslip/extract} responses per profile for that.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class FileUtilBenchmark {
+
+    private static final Map<String, ImageOptions> PROFILES = Map.of(
+            "full-res-png", new ImageOptions(0, 0, false, ImageFormat.PNG, 0.9f),
+            "model-sized-png", new ImageOptions(2048, 768, false, ImageFormat.PNG, 0.9f),
+            "model-sized-gray-png", new ImageOptions(2048, 768, true, ImageFormat.PNG, 0.9f),
+            "model-sized-jpeg-q90", new ImageOptions(2048, 768, false, ImageFormat.JPEG, 0.9f),
+            "model-sized-gray-jpeg-q85", new ImageOptions(2048, 768, true, ImageFormat.JPEG, 0.85f)
+    );
+
+    @Param({"bijlage_loonfiche.pdf", "Loonbrief.png", "belgian_payslip_english_sample.png"})
+    public String sample;
+
+    @Param({"model-sized-png", "full-res-png", "model-sized-gray-png", "model-sized-jpeg-q90", "model-sized-gray-jpeg-q85"})
+    public String profile;
+
+    private InMemoryMultipartFile file;
+    private RenderOptions renderOptions;
+
+    /**
+     * Payload of the last call. The values are the same for every call of a trial, so JMH reports them as is.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+        public long bytes;
+        public long pixels;
+        public long tokens;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] content = new ClassPathResource("payslips/" + sample).getContentAsByteArray();
+        String contentType = MediaTypeFactory.getMediaType(sample).map(MediaType::toString).orElse("");
+        file = new InMemoryMultipartFile("file", sample, contentType, content);
+        renderOptions = new RenderOptions(300, 10, 4, 35_000_000L, 30_000_000L, PageMode.PAGES, PROFILES.get(profile));
+    }
+
+    @Benchmark
+    public List<EncodedImage> convertFileToImages(Payload payload) throws IOException {
+        List<EncodedImage> images = FileUtil.convertFileToImages(file, renderOptions);
+        payload.bytes = images.stream().mapToLong(image -> image.data().length).sum();
+        payload.pixels = images.stream().mapToLong(image -> (long) image.width() * image.height()).sum();
+        payload.tokens = images.stream().mapToInt(image -> ImagePreprocessor.estimateVisionTokens(image.width(), image.height())).sum();
+        return images;
+    }
+}
@@ -0,0 +1,59 @@
+package com.app.payslip.poc.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing as used for document ids and file keys. {@code hexFormat} is the JDK encoder, kept as a baseline for
+ * {@link HashUtil#toHex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HashUtilBenchmark {
+
+    private String sectionText;
+    private byte[] fileBytes;
+    private byte[] digest;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        sectionText = """
+                FINANCIAL
+                Gross: 4286
+                Taxable: 3725.93
+                Social security (RSZ): 560.18
+                Withholding tax: 1023.45
+                Net: 2714.1
+                Payment IBAN (last4): 7034
+                Payment BIC (last4): BEBB
+                """;
+        fileBytes = "%PDF-1.7 benchmark payload".repeat(20_000).getBytes(StandardCharsets.US_ASCII);
+        digest = MessageDigest.getInstance("SHA-256").digest(fileBytes);
+    }
+
+    @Benchmark
+    public String shortSha256() {
+        return HashUtil.shortSha256(sectionText);
+    }
+
+    @Benchmark
+    public String sha256HexOfFile() {
+        return HashUtil.sha256Hex(fileBytes);
+    }
+
+    @Benchmark
+    public String toHex() {
+        return HashUtil.toHex(digest);
+    }
+
+    @Benchmark
+    public String hexFormat() {
+        return HexFormat.of().formatHex(digest);
+    }
+}
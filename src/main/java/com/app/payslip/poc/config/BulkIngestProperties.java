@@ -0,0 +1,18 @@
+package com.app.payslip.poc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.bulk")
+public class BulkIngestProperties {
+
+    private int maxConcurrency = 8;
+    private int maxRetainedJobs = 100;
+    private long maxFileBytes = 20L * 1024 * 1024;
+    private int maxEntries = 500;
+    private long maxTotalBytes = 1024L * 1024 * 1024;
+    private String spoolDirectory = System.getProperty("java.io.tmpdir");
+}
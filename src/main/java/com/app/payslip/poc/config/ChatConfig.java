@@ -1,5 +1,6 @@
 package com.app.payslip.poc.config;
 
+import com.app.payslip.poc.service.TokenUsageAdvisor;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,7 +9,7 @@ import org.springframework.context.annotation.Configuration;
 public class ChatConfig {
 
     @Bean
-    public ChatClient chatClient(ChatClient.Builder builder) {
-        return builder.build();
+    public ChatClient chatClient(ChatClient.Builder builder, TokenUsageAdvisor tokenUsageAdvisor) {
+        return builder.defaultAdvisors(tokenUsageAdvisor).build();
     }
 }
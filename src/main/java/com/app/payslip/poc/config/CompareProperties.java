@@ -0,0 +1,15 @@
+package com.app.payslip.poc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.compare")
+public class CompareProperties {
+
+    private Duration extractionTimeout = Duration.ofSeconds(120);
+}
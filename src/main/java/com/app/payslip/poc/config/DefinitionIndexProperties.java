@@ -0,0 +1,22 @@
+package com.app.payslip.poc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.definition-index")
+public class DefinitionIndexProperties {
+
+    /**
+     * Embeddings of definition texts keyed on model and content hash, so restarts only embed changed definitions.
+     */
+    private String vectorCacheFile = "data/definition-vectors.json";
+
+    /**
+     * One-time cleanup of the definition documents that versions before the in-process index kept in the vector
+     * store. Enable for a single startup after upgrading an existing index; new installations never need it.
+     */
+    private boolean removeStoredDefinitions = false;
+}
@@ -1,40 +1,96 @@
 package com.app.payslip.poc.config;
 
+import com.app.payslip.poc.service.DefinitionIndex;
+import com.app.payslip.poc.service.DocumentLookup;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
 
+import static com.app.payslip.poc.util.HashUtil.sha256Hex;
+
+/**
+ * Loads the definitions in {@code rag/definitions} into the in-process {@link DefinitionIndex}.
+ * <p>
+ * Every definition gets the id {@code definition:<file name>} and the SHA-256 of its text, so the index only embeds
+ * definitions that are new or changed. Definitions are no longer kept in the vector store; copies left there by
+ * earlier versions are only deleted when {@code payslip.definition-index.remove-stored-definitions} is enabled, so a
+ * regular startup never scans the store. Loading runs in the background and does not hold up startup.
+ */
+@Slf4j
 @Configuration
 public class DefinitionPreloader {
 
+    private static final String TYPE_DEFINITION = "definition";
+    private static final String METADATA_CONTENT_SHA256 = "content.sha256";
+
     @Bean
-    ApplicationRunner preloadDefinitions(VectorStore vectorStore) {
-        return args -> {
-            List<Document> documents = new ArrayList<>();
-            Resource[] resources = new PathMatchingResourcePatternResolver()
-                    .getResources("classpath:rag/definitions/*.*");
-            for (Resource resource : resources) {
-                String text = new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-                Map<String, Object> metadata = new LinkedHashMap<>();
-                metadata.put("type", "definition");
-                metadata.put("topic", topicFromName(resource.getFilename()));
-                metadata.put("source", resource.getFilename());
-                documents.add(new Document(text, metadata));
+    ApplicationRunner preloadDefinitions(
+            DefinitionIndex definitionIndex,
+            VectorStore vectorStore,
+            DocumentLookup documentLookup,
+            DefinitionIndexProperties properties,
+            ExecutorService virtualThreadExecutor
+    ) {
+        return args -> virtualThreadExecutor.execute(() -> {
+            try {
+                definitionIndex.load(List.copyOf(readDefinitions().values()));
+            } catch (Exception exception) {
+                log.error("Definition preloading failed", exception);
+            }
+            if (properties.isRemoveStoredDefinitions()) {
+                removeStoredDefinitions(vectorStore, documentLookup);
+            }
+        });
+    }
+
+    private void removeStoredDefinitions(VectorStore vectorStore, DocumentLookup documentLookup) {
+        List<String> storedIds = new ArrayList<>();
+        FilterExpressionBuilder builder = new FilterExpressionBuilder();
+        try {
+            documentLookup.scan(builder.eq("type", TYPE_DEFINITION).build(), document -> storedIds.add(document.getId()));
+            if (storedIds.isEmpty()) {
+                log.info("No definitions left in the vector store; payslip.definition-index.remove-stored-definitions can be switched off");
+                return;
             }
-            if (!documents.isEmpty()) {
-                vectorStore.add(documents);
+            vectorStore.delete(storedIds);
+            log.info("Deleted {} definitions from the vector store, they are served by the definition index", storedIds.size());
+        } catch (RuntimeException exception) {
+            log.warn("Skipping removal of stored definitions, the vector store is not reachable or has no index yet: {}",
+                    exception.getMessage());
+        }
+    }
+
+    private Map<String, Document> readDefinitions() throws IOException {
+        Map<String, Document> definitions = new LinkedHashMap<>();
+        Resource[] resources = new PathMatchingResourcePatternResolver()
+                .getResources("classpath:rag/definitions/*.*");
+        for (Resource resource : resources) {
+            byte[] content;
+            try (InputStream inputStream = resource.getInputStream()) {
+                content = inputStream.readAllBytes();
             }
-        };
+            String id = DefinitionIndex.ID_PREFIX + resource.getFilename();
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("type", TYPE_DEFINITION);
+            metadata.put("topic", topicFromName(resource.getFilename()));
+            metadata.put("source", resource.getFilename());
+            metadata.put("docId", id);
+            metadata.put(METADATA_CONTENT_SHA256, sha256Hex(content));
+            definitions.put(id, new Document(id, new String(content, StandardCharsets.UTF_8), metadata));
+        }
+        return definitions;
     }
 
     private String topicFromName(String fileName) {
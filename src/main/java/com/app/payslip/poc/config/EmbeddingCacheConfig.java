@@ -0,0 +1,40 @@
+package com.app.payslip.poc.config;
+
+import com.app.payslip.poc.service.CachingEmbeddingModel;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class EmbeddingCacheConfig {
+
+    private static final String CACHE_NAME = "embedding";
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "payslip.embedding-cache", name = "enabled", matchIfMissing = true)
+    public EmbeddingModel cachingEmbeddingModel(
+            OpenAiEmbeddingModel openAiEmbeddingModel,
+            EmbeddingCacheProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${spring.ai.openai.embedding.options.model:text-embedding-ada-002}") String modelName,
+            @Value("${spring.ai.openai.embedding.metadata-mode:EMBED}") MetadataMode metadataMode
+    ) {
+        Cache<String, float[]> cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        return new CachingEmbeddingModel(openAiEmbeddingModel, modelName, metadataMode, cache);
+    }
+}
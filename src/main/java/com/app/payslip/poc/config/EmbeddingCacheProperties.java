@@ -0,0 +1,17 @@
+package com.app.payslip.poc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.embedding-cache")
+public class EmbeddingCacheProperties {
+
+    private boolean enabled = true;
+    private long maxEntries = 5_000;
+    private Duration timeToLive = Duration.ofHours(24);
+}
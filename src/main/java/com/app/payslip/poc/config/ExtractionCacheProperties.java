@@ -0,0 +1,19 @@
+package com.app.payslip.poc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.extraction-cache")
+public class ExtractionCacheProperties {
+
+    private boolean enabled = true;
+
+    private long memoryMaxEntries = 1_000;
+
+    private boolean diskEnabled = true;
+    private String diskDirectory = "data/extraction-cache";
+    private long diskMaxBytes = 256L * 1024 * 1024;
+}
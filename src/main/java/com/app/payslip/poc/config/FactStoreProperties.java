@@ -0,0 +1,14 @@
+package com.app.payslip.poc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.fact-store")
+public class FactStoreProperties {
+
+    private boolean enabled = true;
+    private String file = "data/payslip-facts.bin";
+}
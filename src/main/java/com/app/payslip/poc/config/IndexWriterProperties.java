@@ -0,0 +1,27 @@
+package com.app.payslip.poc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.index-writer")
+public class IndexWriterProperties {
+
+    private boolean enabled = true;
+
+    private int maxBatchDocuments = 256;
+    private Duration maxBatchDelay = Duration.ofMillis(200);
+
+    private int queueCapacity = 1_000;
+    private Duration enqueueTimeout = Duration.ofSeconds(30);
+
+    private int maxAttempts = 3;
+    private Duration retryBackoff = Duration.ofMillis(500);
+
+    private Duration writeTimeout = Duration.ofMinutes(2);
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+}
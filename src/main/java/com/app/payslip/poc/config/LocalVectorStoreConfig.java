@@ -0,0 +1,24 @@
+package com.app.payslip.poc.config;
+
+import com.app.payslip.poc.vectorstore.LocalVectorStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+
+@Configuration
+@Profile("local-vector-store")
+public class LocalVectorStoreConfig {
+
+    @Bean(destroyMethod = "close")
+    public LocalVectorStore localVectorStore(
+            EmbeddingModel embeddingModel,
+            LocalVectorStoreProperties properties,
+            ObjectMapper objectMapper
+    ) throws IOException {
+        return new LocalVectorStore(embeddingModel, properties, objectMapper);
+    }
+}
@@ -0,0 +1,36 @@
+package com.app.payslip.poc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.local-vector-store")
+public class LocalVectorStoreProperties {
+
+    private String directory = "data/vector-store";
+    private int dimensions = 1536;
+
+    /**
+     * HNSW links per node on the upper layers; layer 0 keeps twice as many.
+     */
+    private int maxConnections = 16;
+    private int efConstruction = 100;
+    private int efSearch = 64;
+
+    /**
+     * Searches with at most this many candidates after filtering are answered by an exact scan instead of the graph.
+     */
+    private int exactSearchThreshold = 2_000;
+
+    /**
+     * Metadata keys kept in an inverted index. Equality and {@code in} filters on these keys narrow a search to the
+     * matching documents before the rest of the filter is evaluated, instead of evaluating it on every document.
+     */
+    private List<String> indexedMetadataKeys = List.of(
+            "payslipId", "personal.nationalId", "employment.employeeNumber", "period.monthKey", "type"
+    );
+}
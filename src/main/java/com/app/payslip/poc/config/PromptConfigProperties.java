@@ -15,10 +15,12 @@ public class PromptConfigProperties {
     public static class PayslipPrompts {
         private String systemExtraction;
         private String userExtraction;
+        private String userExtractionText;
 
         private String systemCompare;
         private String userCompare;
 
         private String systemAsk;
+        private String userAsk;
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.app.payslip.poc.config;
+
+import com.app.payslip.poc.util.FileUtil.PageMode;
+import com.app.payslip.poc.util.FileUtil.RenderOptions;
+import com.app.payslip.poc.util.ImagePreprocessor.ImageFormat;
+import com.app.payslip.poc.util.ImagePreprocessor.ImageOptions;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Optional;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.rendering")
+public class RenderingProperties {
+
+    private int dpi = 300;
+    private int maxPages = 10;
+    private int parallelism = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private long maxPixelsInFlight = 35_000_000L;
+    private long maxTiledPixels = 30_000_000L;
+    private PageMode pageMode = PageMode.PAGES;
+    private Image image = new Image();
+
+    public RenderOptions toRenderOptions(PageMode requestedPageMode) {
+        return new RenderOptions(
+                dpi,
+                maxPages,
+                parallelism,
+                maxPixelsInFlight,
+                maxTiledPixels,
+                Optional.ofNullable(requestedPageMode).orElse(pageMode),
+                image.toImageOptions()
+        );
+    }
+
+    @Data
+    public static class Image {
+        private int maxLongSide = 2048;
+        private int maxShortSide = 768;
+        private boolean grayscale = false;
+        private ImageFormat format = ImageFormat.PNG;
+        private float jpegQuality = 0.9f;
+
+        public ImageOptions toImageOptions() {
+            return new ImageOptions(maxLongSide, maxShortSide, grayscale, format, jpegQuality);
+        }
+    }
+}
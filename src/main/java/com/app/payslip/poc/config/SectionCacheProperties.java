@@ -0,0 +1,17 @@
+package com.app.payslip.poc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.section-cache")
+public class SectionCacheProperties {
+
+    private boolean enabled = true;
+    private long maxEntries = 2_000;
+    private Duration timeToLive = Duration.ofMinutes(30);
+}
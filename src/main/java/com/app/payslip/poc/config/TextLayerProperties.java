@@ -0,0 +1,21 @@
+package com.app.payslip.poc.config;
+
+import com.app.payslip.poc.util.FileUtil.TextLayerOptions;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.text-layer")
+public class TextLayerProperties {
+
+    private boolean enabled = true;
+    private int minCharacters = 200;
+    private int minCharactersPerPage = 40;
+    private float columnWidthPoints = 4.0f;
+
+    public TextLayerOptions toTextLayerOptions(int maxPages) {
+        return new TextLayerOptions(maxPages, minCharacters, minCharactersPerPage, columnWidthPoints);
+    }
+}
@@ -0,0 +1,18 @@
+package com.app.payslip.poc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.timeline")
+public class TimelineProperties {
+
+    private int defaultMonths = 36;
+
+    /**
+     * Months whose value lies at least this many standard deviations from the series mean are reported as outliers.
+     */
+    private double outlierZScore = 2.0;
+}
@@ -0,0 +1,24 @@
+package com.app.payslip.poc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "payslip.token-ledger")
+public class TokenLedgerProperties {
+
+    private boolean enabled = true;
+    private String file = "data/token-usage.json";
+    private Duration flushInterval = Duration.ofMinutes(1);
+
+    /**
+     * USD per million tokens, used for the cost estimate; image tokens are part of the prompt tokens.
+     */
+    private BigDecimal promptPricePerMillion = new BigDecimal("2.50");
+    private BigDecimal completionPricePerMillion = new BigDecimal("10.00");
+}
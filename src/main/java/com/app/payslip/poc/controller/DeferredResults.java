@@ -0,0 +1,36 @@
+package com.app.payslip.poc.controller;
+
+import com.app.payslip.poc.util.CancellableTask;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Binds a {@link CancellableTask} to a {@link DeferredResult}: the outcome of the task becomes the response, and when
+ * the request times out ({@code spring.mvc.async.request-timeout}) or fails, the task is cancelled through its executor
+ * {@code Future} so the worker thread is interrupted rather than left running.
+ * <p>
+ * Cancelling completes the task result with a {@link CancellationException} from inside the timeout callback. That
+ * outcome is not forwarded, so MVC still answers an expired request with its standard {@code 503} timeout response.
+ */
+final class DeferredResults {
+
+    private DeferredResults() {
+    }
+
+    static <T> DeferredResult<T> of(CancellableTask<T> task) {
+        DeferredResult<T> deferredResult = new DeferredResult<>();
+        task.result().whenComplete((value, failure) -> {
+            if (failure instanceof CancellationException) return;
+            if (failure != null) {
+                deferredResult.setErrorResult(failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+            } else {
+                deferredResult.setResult(value);
+            }
+        });
+        deferredResult.onTimeout(task::cancel);
+        deferredResult.onError(failure -> task.cancel());
+        return deferredResult;
+    }
+}
@@ -0,0 +1,32 @@
+package com.app.payslip.poc.controller;
+
+import com.app.payslip.poc.factstore.PayslipFactStore;
+import com.app.payslip.poc.model.PayslipFactAggregateDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.YearMonth;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping(path = "/api/payslip/analytics", produces = MediaType.APPLICATION_JSON_VALUE)
+public class PayslipAnalyticsController {
+
+    private final PayslipFactStore factStore;
+
+    @GetMapping("/by-employer-month")
+    public List<PayslipFactAggregateDTO> byEmployerAndMonth(
+            @RequestParam(value = "metric", defaultValue = "net") String metric,
+            @RequestParam(value = "employerNumber", required = false) String employerNumber,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to
+    ) {
+        return factStore.aggregateByEmployerAndMonth(PayslipFactStore.Metric.fromName(metric), employerNumber, from, to);
+    }
+}
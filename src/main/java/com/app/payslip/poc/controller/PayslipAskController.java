@@ -3,24 +3,67 @@ package com.app.payslip.poc.controller;
 import com.app.payslip.poc.model.PayslipAskResponseDTO;
 import com.app.payslip.poc.service.PayslipAskService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
+import java.util.Map;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/payslip")
 @RequiredArgsConstructor
 public class PayslipAskController {
 
+    private static final String EVENT_CITATIONS = "citations";
+    private static final String EVENT_TOKEN = "token";
+    private static final String EVENT_DONE = "done";
+    private static final String EVENT_ERROR = "error";
+
     private final PayslipAskService service;
 
     @PostMapping(value = "/ask", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public PayslipAskResponseDTO ask(@RequestPart("file") MultipartFile payslipFile, @RequestPart("question") String question) throws IOException {
         return service.ask(payslipFile, question);
     }
+
+    /**
+     * Same as {@code /ask}, but the servlet thread is released while the answer is prepared on a virtual thread; the
+     * work is cancelled when {@code spring.mvc.async.request-timeout} expires.
+     */
+    @PostMapping(value = "/ask/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<PayslipAskResponseDTO> askAsync(@RequestPart("file") MultipartFile payslipFile, @RequestPart("question") String question) throws IOException {
+        return DeferredResults.of(service.askAsync(payslipFile, question));
+    }
+
+    /**
+     * Streams the answer as Server-Sent Events: one {@code citations} event as soon as retrieval is done, a
+     * {@code token} event per generated chunk, and a final {@code done} (or {@code error}) event.
+     */
+    @PostMapping(value = "/ask/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> askStream(@RequestPart("file") MultipartFile payslipFile, @RequestPart("question") String question) throws IOException {
+        PayslipAskService.AnswerStream answer = service.askStream(payslipFile, question);
+
+        return Flux.concat(
+                        Flux.just(event(EVENT_CITATIONS, answer.citations())),
+                        answer.tokens().map(token -> event(EVENT_TOKEN, token)),
+                        Flux.just(event(EVENT_DONE, Map.of()))
+                )
+                .onErrorResume(failure -> {
+                    log.warn("Streaming answer failed: {}", failure.getMessage());
+                    return Flux.just(event(EVENT_ERROR, Map.of("message", String.valueOf(failure.getMessage()))));
+                });
+    }
+
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
 }
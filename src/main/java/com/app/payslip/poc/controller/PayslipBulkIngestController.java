@@ -0,0 +1,32 @@
+package com.app.payslip.poc.controller;
+
+import com.app.payslip.poc.model.BulkIngestJobDTO;
+import com.app.payslip.poc.service.PayslipBulkIngestService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/payslip")
+public class PayslipBulkIngestController {
+
+    private final PayslipBulkIngestService bulkIngestService;
+
+    @PostMapping(value = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkIngestJobDTO> submit(@RequestPart("files") List<MultipartFile> files) throws IOException {
+        return ResponseEntity.accepted().body(bulkIngestService.submit(files));
+    }
+
+    @GetMapping(value = "/bulk/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkIngestJobDTO> getJob(@PathVariable String jobId) {
+        return bulkIngestService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
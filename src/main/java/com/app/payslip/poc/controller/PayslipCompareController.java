@@ -1,22 +1,31 @@
 package com.app.payslip.poc.controller;
 
+import com.app.payslip.poc.model.PayslipComparisonExplanationDTO;
 import com.app.payslip.poc.model.TextAnswerDTO;
 import com.app.payslip.poc.service.PayslipCompareService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
+import java.util.Map;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/payslip")
 @RequiredArgsConstructor
 public class PayslipCompareController {
 
+    private static final String EVENT_ERROR = "error";
+
     private final PayslipCompareService payslipCompareService;
 
     @PostMapping(
@@ -30,4 +39,50 @@ public class PayslipCompareController {
             @RequestPart("question") String question) throws IOException {
         return payslipCompareService.compareAndExplain(previousPayslipFile, currentPayslipFile, question);
     }
+
+    /**
+     * Same as {@code /chat}, but the servlet thread is released while the comparison runs on a virtual thread; the
+     * work is cancelled when {@code spring.mvc.async.request-timeout} expires.
+     */
+    @PostMapping(
+            value = "/chat/async",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public DeferredResult<TextAnswerDTO> chatAsync(
+            @RequestPart("previous") MultipartFile previousPayslipFile,
+            @RequestPart("current") MultipartFile currentPayslipFile,
+            @RequestPart("question") String question) throws IOException {
+        return DeferredResults.of(payslipCompareService.compareAndExplainAsync(previousPayslipFile, currentPayslipFile, question));
+    }
+
+    @PostMapping(
+            value = "/compare",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public PayslipComparisonExplanationDTO compare(
+            @RequestPart("previous") MultipartFile previousPayslipFile,
+            @RequestPart("current") MultipartFile currentPayslipFile) throws IOException {
+        return payslipCompareService.compare(previousPayslipFile, currentPayslipFile);
+    }
+
+    @PostMapping(
+            value = "/chat/stream",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE
+    )
+    public Flux<ServerSentEvent<Object>> chatStream(
+            @RequestPart("previous") MultipartFile previousPayslipFile,
+            @RequestPart("current") MultipartFile currentPayslipFile,
+            @RequestPart("question") String question) throws IOException {
+        return payslipCompareService.compareAndExplainStream(previousPayslipFile, currentPayslipFile, question)
+                .map(event -> ServerSentEvent.builder(event.data()).event(event.name()).build())
+                .onErrorResume(failure -> {
+                    log.warn("Streaming comparison failed: {}", failure.getMessage());
+                    return Flux.just(ServerSentEvent.<Object>builder(Map.of("message", String.valueOf(failure.getMessage())))
+                            .event(EVENT_ERROR)
+                            .build());
+                });
+    }
 }
@@ -2,14 +2,20 @@ package com.app.payslip.poc.controller;
 
 import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
 import com.app.payslip.poc.service.PayslipExtractionService;
+import com.app.payslip.poc.service.PayslipMetrics;
+import com.app.payslip.poc.util.FileUtil.PageMode;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/payslip")
@@ -18,7 +24,20 @@ public class PayslipExtractController {
     private final PayslipExtractionService service;
 
     @PostMapping(value = "/extract", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ExtractedPayslipDataDTO scrapePayslip(@RequestPart("file") MultipartFile file) throws Exception {
-        return service.scrapeAndIndexPayslip(file);
+    public ExtractedPayslipDataDTO scrapePayslip(
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(value = "pageMode", required = false) PageMode pageMode) throws Exception {
+        return service.scrapeAndIndexPayslip(file, pageMode, PayslipMetrics.ENDPOINT_EXTRACT);
+    }
+
+    /**
+     * Same as {@code /extract}, but the servlet thread is released while the extraction runs on a virtual thread; the
+     * work is cancelled when {@code spring.mvc.async.request-timeout} expires.
+     */
+    @PostMapping(value = "/extract/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ExtractedPayslipDataDTO> scrapePayslipAsync(
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(value = "pageMode", required = false) PageMode pageMode) throws IOException {
+        return DeferredResults.of(service.scrapeAndIndexPayslipAsync(file, pageMode, PayslipMetrics.ENDPOINT_EXTRACT));
     }
 }
@@ -0,0 +1,27 @@
+package com.app.payslip.poc.controller;
+
+import com.app.payslip.poc.model.PayslipTimelineDTO;
+import com.app.payslip.poc.service.PayslipTimelineService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping(path = "/api/payslip", produces = MediaType.APPLICATION_JSON_VALUE)
+public class PayslipTimelineController {
+
+    private final PayslipTimelineService timelineService;
+
+    @GetMapping("/timeline")
+    public PayslipTimelineDTO timeline(
+            @RequestParam(value = "nationalId", required = false) String nationalId,
+            @RequestParam(value = "employeeNumber", required = false) String employeeNumber,
+            @RequestParam(value = "months", required = false) Integer months
+    ) {
+        return timelineService.timeline(nationalId, employeeNumber, months);
+    }
+}
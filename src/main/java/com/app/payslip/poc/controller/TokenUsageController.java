@@ -0,0 +1,32 @@
+package com.app.payslip.poc.controller;
+
+import com.app.payslip.poc.model.TokenUsageDTO;
+import com.app.payslip.poc.service.TokenUsageLedger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping(path = "/api/admin", produces = MediaType.APPLICATION_JSON_VALUE)
+public class TokenUsageController {
+
+    private final TokenUsageLedger tokenUsageLedger;
+
+    @GetMapping("/token-usage")
+    public TokenUsageDTO tokenUsage(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "endpoint", required = false) String endpoint,
+            @RequestParam(value = "operation", required = false) String operation,
+            @RequestParam(value = "employerNumber", required = false) String employerNumber
+    ) {
+        return tokenUsageLedger.report(from, to, endpoint, operation, employerNumber);
+    }
+}
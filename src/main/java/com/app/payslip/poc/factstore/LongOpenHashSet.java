@@ -0,0 +1,72 @@
+package com.app.payslip.poc.factstore;
+
+/**
+ * Open-addressing set of primitive longs, so tracking millions of file keys costs 8 to 16 bytes each instead of a
+ * boxed {@code HashSet} entry.
+ */
+final class LongOpenHashSet {
+
+    private static final long EMPTY = 0L;
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private long[] slots;
+    private int size;
+    private boolean containsEmptyMarker;
+
+    LongOpenHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity initial number of slots, rounded up to a power of two; the set grows past half of it
+     */
+    LongOpenHashSet(int capacity) {
+        slots = new long[Integer.highestOneBit(Math.max(2, capacity - 1)) << 1];
+    }
+
+    boolean contains(long value) {
+        if (value == EMPTY) return containsEmptyMarker;
+        int mask = slots.length - 1;
+        for (int slot = mix(value) & mask; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (slots[slot] == value) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if the value was not present yet
+     */
+    boolean add(long value) {
+        if (value == EMPTY) {
+            boolean added = !containsEmptyMarker;
+            containsEmptyMarker = true;
+            return added;
+        }
+        if ((size + 1) * 2 > slots.length) {
+            resize();
+        }
+        int mask = slots.length - 1;
+        int slot = mix(value) & mask;
+        while (slots[slot] != EMPTY) {
+            if (slots[slot] == value) return false;
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        size++;
+        return true;
+    }
+
+    private void resize() {
+        long[] previous = slots;
+        slots = new long[previous.length * 2];
+        size = 0;
+        for (long value : previous) {
+            if (value != EMPTY) add(value);
+        }
+    }
+
+    private static int mix(long value) {
+        long mixed = value * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
@@ -0,0 +1,445 @@
+package com.app.payslip.poc.factstore;
+
+import com.app.payslip.poc.config.FactStoreProperties;
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
+import com.app.payslip.poc.model.PayslipFactAggregateDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Columnar store of payslip facts for analytics: one row per payslip, money as {@code long} cents in one primitive
+ * array per metric, employer and employee numbers dictionary-encoded to ints. Scans and group-bys walk the arrays
+ * directly, so they stay fast well past a million payslips.
+ * <p>
+ * Rows are appended to a binary log ({@code payslip.fact-store.file}) that is replayed on startup: a header, then
+ * dictionary entries (written when a value is first seen) and fixed-width rows. A torn record at the end is cut off.
+ * A payslip file is only recorded once, keyed on its SHA-256.
+ * <p>
+ * Each payslip (its new dictionary entries and its row) is written with a single channel write. If that write fails,
+ * the file is cut back to the last complete record, so a later record never lands behind a partial one. If even that
+ * fails, recording stops until the next restart rather than append after garbage.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PayslipFactStore {
+
+    public enum Metric {
+        GROSS, TAXABLE, SOCIAL_SECURITY, WITHHOLDING_TAX, NET, BASE_SALARY, MEAL_VOUCHER_EMPLOYER, MEAL_VOUCHER_EMPLOYEE;
+
+        public static Metric fromName(String name) {
+            String normalized = name.replaceAll("([a-z])([A-Z])", "$1_$2").replace('-', '_').toUpperCase(Locale.ROOT);
+            return Metric.valueOf(normalized);
+        }
+    }
+
+    private static final int MAGIC = 0x50464354; // "PFCT"
+    private static final int FORMAT_VERSION = 1;
+    private static final byte RECORD_DICTIONARY = 'D';
+    private static final byte RECORD_ROW = 'R';
+    private static final byte DICTIONARY_EMPLOYER = 0;
+    private static final byte DICTIONARY_EMPLOYEE = 1;
+    private static final long NULL_CENTS = Long.MIN_VALUE;
+    private static final int UNKNOWN_MONTH = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int RECORD_BUFFER_BYTES = 128;
+    private static final int GROUP_EMPLOYEE_CAPACITY = 16;
+
+    private final FactStoreProperties properties;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StringDictionary employers = new StringDictionary();
+    private final StringDictionary employees = new StringDictionary();
+    private final LongOpenHashSet fileKeys = new LongOpenHashSet();
+
+    private int rowCount;
+    private int[] employerIds = new int[INITIAL_CAPACITY];
+    private int[] employeeIds = new int[INITIAL_CAPACITY];
+    private int[] monthIndexes = new int[INITIAL_CAPACITY];
+    private int[] mealVoucherCounts = new int[INITIAL_CAPACITY];
+    private int[] benefitCounts = new int[INITIAL_CAPACITY];
+    private long[][] cents = new long[Metric.values().length][INITIAL_CAPACITY];
+
+    private Path file;
+    private FileChannel channel;
+    private long committedLength;
+    private boolean writeFailed;
+
+    @PostConstruct
+    void initialize() throws IOException {
+        if (!properties.isEnabled()) return;
+
+        file = Path.of(properties.getFile());
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+
+        long startNanos = System.nanoTime();
+        if (exists) {
+            long validLength = replay(file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                if (channel.size() > validLength) {
+                    log.warn("Truncating {} bytes of incomplete records from '{}'", channel.size() - validLength, file);
+                    channel.truncate(validLength);
+                }
+            }
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        committedLength = channel.size();
+        channel.position(committedLength);
+        if (!exists) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream(Integer.BYTES * 2);
+            DataOutputStream headerOutput = new DataOutputStream(header);
+            headerOutput.writeInt(MAGIC);
+            headerOutput.writeInt(FORMAT_VERSION);
+            append(header.toByteArray());
+        }
+        log.info("Payslip fact store at '{}' holds {} payslips, {} employers, {} employees (loaded in {} ms)",
+                file.toAbsolutePath(), rowCount, employers.size(), employees.size(), (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    /**
+     * Appends the payslip unless the same file was recorded before.
+     *
+     * @return {@code true} if a row was added
+     */
+    public boolean record(String fileSha256, ExtractedPayslipDataDTO payslipData) {
+        if (!properties.isEnabled() || payslipData == null) return false;
+
+        long fileKey = fileKey(fileSha256);
+        lock.writeLock().lock();
+        try {
+            if (fileKeys.contains(fileKey)) return false;
+            if (writeFailed) {
+                log.debug("Payslip fact store is disabled after a failed write, not recording {}", fileSha256);
+                return false;
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(RECORD_BUFFER_BYTES);
+            DataOutputStream output = new DataOutputStream(bytes);
+            String employerNumber = employerNumber(payslipData);
+            String employeeKey = employeeKey(payslipData);
+            int employerId = dictionaryId(output, employers, DICTIONARY_EMPLOYER, employerNumber);
+            int employeeId = dictionaryId(output, employees, DICTIONARY_EMPLOYEE, employeeKey);
+            long[] metricCents = new long[Metric.values().length];
+            for (Metric metric : Metric.values()) {
+                metricCents[metric.ordinal()] = toCents(valueOf(metric, payslipData));
+            }
+            int monthIndex = monthIndex(Optional.ofNullable(payslipData.period()).map(ExtractedPayslipDataDTO.PeriodInfo::periodStart).orElse(null));
+            int mealVoucherCount = Optional.ofNullable(payslipData.extras()).map(ExtractedPayslipDataDTO.Extras::mealVoucherCount).orElse(0);
+            int benefitCount = Optional.ofNullable(payslipData.extras()).map(ExtractedPayslipDataDTO.Extras::benefits).map(List::size).orElse(0);
+
+            output.writeByte(RECORD_ROW);
+            output.writeLong(fileKey);
+            output.writeInt(employerId);
+            output.writeInt(employeeId);
+            output.writeInt(monthIndex);
+            for (long value : metricCents) {
+                output.writeLong(value);
+            }
+            output.writeInt(mealVoucherCount);
+            output.writeInt(benefitCount);
+            append(bytes.toByteArray());
+
+            if (employerId == employers.size()) employers.add(employerNumber);
+            if (employeeId == employees.size()) employees.add(employeeKey);
+            addRow(fileKey, employerId, employeeId, monthIndex, metricCents, mealVoucherCount, benefitCount);
+            return true;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Failed to append to the payslip fact store", exception);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Groups payslips by employer and month and aggregates one metric, along with the number of distinct employees and
+     * the meal vouchers and benefits of the group; payslips without a value for the metric or without a known month are
+     * skipped. All filters are optional.
+     */
+    public List<PayslipFactAggregateDTO> aggregateByEmployerAndMonth(Metric metric, String employerNumber, YearMonth from, YearMonth to) {
+        lock.readLock().lock();
+        try {
+            int employerFilter = employerNumber == null || employerNumber.isBlank() ? StringDictionary.ABSENT : employers.idOf(employerNumber);
+            if (employerNumber != null && !employerNumber.isBlank() && employerFilter == StringDictionary.ABSENT) {
+                return List.of();
+            }
+            int fromIndex = from == null ? Integer.MIN_VALUE : monthIndex(from);
+            int toIndex = to == null ? Integer.MAX_VALUE : monthIndex(to);
+
+            long[] column = cents[metric.ordinal()];
+            Map<Long, Group> groups = new HashMap<>();
+            for (int row = 0; row < rowCount; row++) {
+                int month = monthIndexes[row];
+                long value = column[row];
+                if (month == UNKNOWN_MONTH || month < fromIndex || month > toIndex || value == NULL_CENTS) continue;
+                if (employerFilter != StringDictionary.ABSENT && employerIds[row] != employerFilter) continue;
+
+                long groupKey = ((long) employerIds[row] << 32) | month;
+                groups.computeIfAbsent(groupKey, key -> new Group())
+                        .add(value, employeeIds[row], mealVoucherCounts[row], benefitCounts[row]);
+            }
+
+            List<PayslipFactAggregateDTO> aggregates = new ArrayList<>(groups.size());
+            groups.forEach((groupKey, group) -> aggregates.add(PayslipFactAggregateDTO.builder()
+                    .employerNumber(employers.valueOf((int) (groupKey >>> 32)))
+                    .monthKey(monthKey((int) (long) groupKey))
+                    .metric(metric.name())
+                    .payslipCount(group.count)
+                    .employeeCount(group.employeeCount)
+                    .average(BigDecimal.valueOf(group.sum).divide(BigDecimal.valueOf(group.count * 100), 2, RoundingMode.HALF_UP))
+                    .total(BigDecimal.valueOf(group.sum, 2))
+                    .min(BigDecimal.valueOf(group.min, 2))
+                    .max(BigDecimal.valueOf(group.max, 2))
+                    .mealVoucherCount(group.mealVoucherCount)
+                    .benefitCount(group.benefitCount)
+                    .build()));
+            aggregates.sort(Comparator.comparing(PayslipFactAggregateDTO::employerNumber).thenComparing(PayslipFactAggregateDTO::monthKey));
+            return aggregates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long replay(Path file) throws IOException {
+        long validLength = 0;
+        try (CountingInputStream counting = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file)));
+             DataInputStream input = new DataInputStream(counting)) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("'" + file + "' is not a payslip fact store of format version " + FORMAT_VERSION);
+            }
+            validLength = counting.count;
+
+            while (true) {
+                int recordType = input.read();
+                if (recordType == -1) break;
+                if (recordType == RECORD_DICTIONARY) {
+                    byte dictionary = input.readByte();
+                    String value = input.readUTF();
+                    (dictionary == DICTIONARY_EMPLOYER ? employers : employees).add(value);
+                } else if (recordType == RECORD_ROW) {
+                    long fileKey = input.readLong();
+                    int employerId = input.readInt();
+                    int employeeId = input.readInt();
+                    int monthIndex = input.readInt();
+                    long[] metricCents = new long[Metric.values().length];
+                    for (int i = 0; i < metricCents.length; i++) {
+                        metricCents[i] = input.readLong();
+                    }
+                    int mealVoucherCount = input.readInt();
+                    int benefitCount = input.readInt();
+                    addRow(fileKey, employerId, employeeId, monthIndex, metricCents, mealVoucherCount, benefitCount);
+                } else {
+                    log.warn("Unknown record type {} in '{}' at byte {}, ignoring the rest", recordType, file, validLength);
+                    break;
+                }
+                validLength = counting.count;
+            }
+        } catch (EOFException exception) {
+            log.warn("Payslip fact store '{}' ends in an incomplete record", file);
+        }
+        return validLength;
+    }
+
+    /**
+     * Returns the id of the value, writing a dictionary entry for a new value to {@code output}. A new value gets the
+     * next id but is only added to the dictionary once its record has been written.
+     */
+    private static int dictionaryId(DataOutputStream output, StringDictionary dictionary, byte dictionaryType, String value) throws IOException {
+        int id = dictionary.idOf(value);
+        if (id != StringDictionary.ABSENT) return id;
+
+        output.writeByte(RECORD_DICTIONARY);
+        output.writeByte(dictionaryType);
+        output.writeUTF(value);
+        return dictionary.size();
+    }
+
+    private void append(byte[] record) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            committedLength += record.length;
+        } catch (IOException exception) {
+            rollBack();
+            throw exception;
+        }
+    }
+
+    /**
+     * Cuts the file back to the last complete record. An interrupted write closes the channel, so it is reopened; the
+     * interrupt is set aside meanwhile, since it would close the new channel as well.
+     */
+    private void rollBack() {
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (!channel.isOpen()) {
+                channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            }
+            channel.truncate(committedLength);
+            channel.position(committedLength);
+        } catch (IOException exception) {
+            writeFailed = true;
+            log.error("Could not cut a partial record off '{}', no more payslips are recorded until restart", file, exception);
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private void addRow(long fileKey, int employerId, int employeeId, int monthIndex, long[] metricCents, int mealVoucherCount, int benefitCount) {
+        if (rowCount == employerIds.length) grow();
+
+        employerIds[rowCount] = employerId;
+        employeeIds[rowCount] = employeeId;
+        monthIndexes[rowCount] = monthIndex;
+        mealVoucherCounts[rowCount] = mealVoucherCount;
+        benefitCounts[rowCount] = benefitCount;
+        for (int metric = 0; metric < metricCents.length; metric++) {
+            cents[metric][rowCount] = metricCents[metric];
+        }
+        fileKeys.add(fileKey);
+        rowCount++;
+    }
+
+    private void grow() {
+        int capacity = employerIds.length * 2;
+        employerIds = Arrays.copyOf(employerIds, capacity);
+        employeeIds = Arrays.copyOf(employeeIds, capacity);
+        monthIndexes = Arrays.copyOf(monthIndexes, capacity);
+        mealVoucherCounts = Arrays.copyOf(mealVoucherCounts, capacity);
+        benefitCounts = Arrays.copyOf(benefitCounts, capacity);
+        for (int metric = 0; metric < cents.length; metric++) {
+            cents[metric] = Arrays.copyOf(cents[metric], capacity);
+        }
+    }
+
+    private static BigDecimal valueOf(Metric metric, ExtractedPayslipDataDTO payslipData) {
+        Optional<ExtractedPayslipDataDTO.FinancialInfo> financial = Optional.ofNullable(payslipData.financial());
+        Optional<ExtractedPayslipDataDTO.Extras> extras = Optional.ofNullable(payslipData.extras());
+        return switch (metric) {
+            case GROSS -> financial.map(ExtractedPayslipDataDTO.FinancialInfo::gross).orElse(null);
+            case TAXABLE -> financial.map(ExtractedPayslipDataDTO.FinancialInfo::taxable).orElse(null);
+            case SOCIAL_SECURITY -> financial.map(ExtractedPayslipDataDTO.FinancialInfo::socialSecurity).orElse(null);
+            case WITHHOLDING_TAX -> financial.map(ExtractedPayslipDataDTO.FinancialInfo::withholdingTax).orElse(null);
+            case NET -> financial.map(ExtractedPayslipDataDTO.FinancialInfo::net).orElse(null);
+            case BASE_SALARY -> Optional.ofNullable(payslipData.employment()).map(ExtractedPayslipDataDTO.EmploymentInfo::baseMonthlySalary).orElse(null);
+            case MEAL_VOUCHER_EMPLOYER -> extras.map(ExtractedPayslipDataDTO.Extras::mealVoucherContributionEmployer).orElse(null);
+            case MEAL_VOUCHER_EMPLOYEE -> extras.map(ExtractedPayslipDataDTO.Extras::mealVoucherContributionEmployee).orElse(null);
+        };
+    }
+
+    private static String employerNumber(ExtractedPayslipDataDTO payslipData) {
+        return Optional.ofNullable(payslipData.employer())
+                .map(ExtractedPayslipDataDTO.EmployerInfo::employerNumber)
+                .orElse("");
+    }
+
+    /**
+     * The employee number where known, otherwise the national ID.
+     */
+    private static String employeeKey(ExtractedPayslipDataDTO payslipData) {
+        return Optional.ofNullable(payslipData.employment())
+                .map(ExtractedPayslipDataDTO.EmploymentInfo::employeeNumber)
+                .filter(number -> !number.isBlank())
+                .or(() -> Optional.ofNullable(payslipData.personal()).map(ExtractedPayslipDataDTO.PersonalInfo::nationalId))
+                .orElse("");
+    }
+
+    private static long toCents(BigDecimal value) {
+        return value == null ? NULL_CENTS : value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static long fileKey(String fileSha256) {
+        return fileSha256 == null || fileSha256.length() < 16 ? 0L : Long.parseUnsignedLong(fileSha256.substring(0, 16), 16);
+    }
+
+    private static int monthIndex(LocalDate date) {
+        return date == null ? UNKNOWN_MONTH : monthIndex(YearMonth.from(date));
+    }
+
+    private static int monthIndex(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private static String monthKey(int monthIndex) {
+        return "%d-%02d".formatted(monthIndex / 12, monthIndex % 12 + 1);
+    }
+
+    /**
+     * Running aggregate of one employer and month.
+     */
+    private static final class Group {
+        private final LongOpenHashSet employees = new LongOpenHashSet(GROUP_EMPLOYEE_CAPACITY);
+        private long count;
+        private long sum;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+        private long employeeCount;
+        private long mealVoucherCount;
+        private long benefitCount;
+
+        private void add(long value, int employeeId, int mealVouchers, int benefits) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            if (employees.add(employeeId)) employeeCount++;
+            mealVoucherCount += mealVouchers;
+            benefitCount += benefits;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) count++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) count += read;
+            return read;
+        }
+    }
+}
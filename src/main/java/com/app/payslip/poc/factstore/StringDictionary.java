@@ -0,0 +1,36 @@
+package com.app.payslip.poc.factstore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for a string column: each distinct value gets the next int id, and rows store only the id.
+ */
+final class StringDictionary {
+
+    static final int ABSENT = -1;
+
+    private final Map<String, Integer> idsByValue = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int idOf(String value) {
+        return idsByValue.getOrDefault(value, ABSENT);
+    }
+
+    int add(String value) {
+        int id = values.size();
+        values.add(value);
+        idsByValue.put(value, id);
+        return id;
+    }
+
+    String valueOf(int id) {
+        return values.get(id);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,27 @@
+package com.app.payslip.poc.model;
+
+import lombok.Builder;
+
+import java.time.Instant;
+import java.util.List;
+
+@Builder
+public record BulkIngestJobDTO(
+        String jobId,
+        String status,
+        int totalFiles,
+        int completedFiles,
+        int failedFiles,
+        Instant createdAt,
+        Instant finishedAt,
+        List<BulkIngestFileDTO> files
+) {
+    @Builder
+    public record BulkIngestFileDTO(
+            String fileName,
+            String status,
+            String monthKey,
+            String error
+    ) {
+    }
+}
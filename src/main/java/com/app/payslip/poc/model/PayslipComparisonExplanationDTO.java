@@ -0,0 +1,10 @@
+package com.app.payslip.poc.model;
+
+import lombok.Builder;
+
+@Builder
+public record PayslipComparisonExplanationDTO(
+        String explanation,
+        PayslipComparisonResultDTO comparison
+) {
+}
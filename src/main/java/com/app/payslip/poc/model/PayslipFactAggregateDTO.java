@@ -0,0 +1,21 @@
+package com.app.payslip.poc.model;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+
+@Builder
+public record PayslipFactAggregateDTO(
+        String employerNumber,
+        String monthKey,
+        String metric,
+        long payslipCount,
+        long employeeCount,
+        BigDecimal average,
+        BigDecimal total,
+        BigDecimal min,
+        BigDecimal max,
+        long mealVoucherCount,
+        long benefitCount
+) {
+}
@@ -0,0 +1,61 @@
+package com.app.payslip.poc.model;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Builder
+public record PayslipTimelineDTO(
+        String nationalId,
+        String employeeNumber,
+        List<MonthDTO> months,
+        List<TrendDTO> trends,
+        List<BenefitEventDTO> benefitEvents,
+        List<OutlierDTO> outliers
+) {
+    @Builder
+    public record MonthDTO(
+            String monthKey,
+            BigDecimal gross,
+            BigDecimal net,
+            BigDecimal socialSecurity,
+            BigDecimal withholdingTax,
+            int benefitCount
+    ) {
+    }
+
+    @Builder
+    public record TrendDTO(
+            String metric,
+            BigDecimal first,
+            BigDecimal last,
+            BigDecimal change,
+            Double changePercent,
+            BigDecimal min,
+            BigDecimal max,
+            BigDecimal mean,
+            BigDecimal averageMonthlyChange
+    ) {
+    }
+
+    @Builder
+    public record BenefitEventDTO(
+            String monthKey,
+            String code,
+            String label,
+            String changeType,
+            BigDecimal amount
+    ) {
+    }
+
+    @Builder
+    public record OutlierDTO(
+            String monthKey,
+            String metric,
+            BigDecimal value,
+            BigDecimal mean,
+            double zScore
+    ) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.app.payslip.poc.model;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Builder
+public record TokenUsageDTO(
+        List<EntryDTO> entries,
+        EntryDTO total
+) {
+
+    /**
+     * Usage of one operation called from one endpoint for one employer on one day; in {@link TokenUsageDTO#total()}
+     * the grouping fields are empty. Entries written before endpoints were tracked have an empty endpoint.
+     */
+    @Builder
+    public record EntryDTO(
+            LocalDate day,
+            String endpoint,
+            String operation,
+            String employerNumber,
+            long calls,
+            long promptTokens,
+            long completionTokens,
+            long imageTokens,
+            BigDecimal estimatedCostUsd
+    ) {
+    }
+}
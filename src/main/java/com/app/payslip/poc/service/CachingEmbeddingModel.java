@@ -0,0 +1,98 @@
+package com.app.payslip.poc.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.*;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * {@link EmbeddingModel} decorator that remembers embeddings per model and normalized text.
+ * <p>
+ * Every vector store search embeds its query text, and several of those queries are constant (the similarity
+ * search query) or repeated (the same question retrieved against payslips and definitions). All
+ * {@link EmbeddingModel} entry points funnel into {@link #call(EmbeddingRequest)}, so only texts missing from the
+ * cache reach the delegate, batched into one request.
+ * <p>
+ * Cached vectors are never handed out directly: every caller gets its own copy, so one that normalizes or otherwise
+ * mutates its vector in place cannot corrupt the embedding the next caller receives.
+ */
+@Slf4j
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final EmbeddingModel delegate;
+    private final String defaultModelName;
+    private final MetadataMode metadataMode;
+    private final Cache<String, float[]> cache;
+
+    /**
+     * @param metadataMode the metadata mode the delegate embeds documents with, so {@link #embed(Document)} embeds
+     *                     the same formatted content the delegate would
+     */
+    public CachingEmbeddingModel(EmbeddingModel delegate, String defaultModelName, MetadataMode metadataMode, Cache<String, float[]> cache) {
+        this.delegate = delegate;
+        this.defaultModelName = defaultModelName;
+        this.metadataMode = metadataMode;
+        this.cache = cache;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        String modelName = Optional.ofNullable(request.getOptions())
+                .map(EmbeddingOptions::getModel)
+                .filter(model -> !model.isBlank())
+                .orElse(defaultModelName);
+
+        float[][] vectors = new float[texts.size()][];
+        Map<String, List<Integer>> missingPositionsByKey = new LinkedHashMap<>();
+        List<String> missingTexts = new ArrayList<>();
+        for (int position = 0; position < texts.size(); position++) {
+            String key = cacheKey(modelName, texts.get(position));
+            vectors[position] = cache.getIfPresent(key);
+            if (vectors[position] == null) {
+                List<Integer> positions = missingPositionsByKey.computeIfAbsent(key, ignored -> new ArrayList<>());
+                if (positions.isEmpty()) missingTexts.add(texts.get(position));
+                positions.add(position);
+            }
+        }
+
+        if (!missingTexts.isEmpty()) {
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(missingTexts, request.getOptions()));
+            List<String> missingKeys = new ArrayList<>(missingPositionsByKey.keySet());
+            for (Embedding embedding : response.getResults()) {
+                String key = missingKeys.get(embedding.getIndex());
+                cache.put(key, embedding.getOutput().clone());
+                missingPositionsByKey.get(key).forEach(position -> vectors[position] = embedding.getOutput());
+            }
+        }
+        log.debug("Embedded {} texts with {}: {} from cache, {} from the model",
+                texts.size(), modelName, texts.size() - missingTexts.size(), missingTexts.size());
+
+        List<Embedding> embeddings = new ArrayList<>(vectors.length);
+        for (int position = 0; position < vectors.length; position++) {
+            embeddings.add(new Embedding(vectors[position].clone(), position));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(metadataMode));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private static String cacheKey(String modelName, String text) {
+        String normalizedText = WHITESPACE.matcher(Optional.ofNullable(text).orElse("")).replaceAll(" ").strip();
+        return modelName + "\u0000" + normalizedText;
+    }
+}
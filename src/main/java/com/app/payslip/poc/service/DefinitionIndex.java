@@ -0,0 +1,205 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.config.DefinitionIndexProperties;
+import com.app.payslip.poc.util.VectorMath;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * In-memory vector index over the payroll definitions. The corpus is a handful of short documents, so a brute-force
+ * scan over one contiguous array of normalized vectors answers in microseconds without a network hop.
+ * <p>
+ * Similarity thresholds are compared against the raw cosine, as the Elasticsearch kNN {@code similarity} parameter is
+ * for a cosine index; the score set on returned documents is {@code (1 + cosine) / 2}, the {@code _score} Elasticsearch
+ * reports.
+ */
+@Slf4j
+@Component
+public class DefinitionIndex {
+
+    /**
+     * Prefix of every definition id, followed by the definition's file name.
+     */
+    public static final String ID_PREFIX = "definition:";
+
+    private static final String METADATA_CONTENT_SHA256 = "content.sha256";
+    private static final TypeReference<Map<String, float[]>> VECTOR_CACHE_TYPE = new TypeReference<>() {
+    };
+
+    private final EmbeddingModel embeddingModel;
+    private final DefinitionIndexProperties properties;
+    private final ObjectMapper objectMapper;
+    private final String modelName;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public DefinitionIndex(
+            EmbeddingModel embeddingModel,
+            DefinitionIndexProperties properties,
+            ObjectMapper objectMapper,
+            @Value("${spring.ai.openai.embedding.options.model:text-embedding-ada-002}") String modelName
+    ) {
+        this.embeddingModel = embeddingModel;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.modelName = modelName;
+    }
+
+    /**
+     * Replaces the index contents. Documents must carry a {@code content.sha256} metadata entry; their vectors are
+     * read from the vector cache file when present and embedded in one batch otherwise.
+     */
+    public void load(List<Document> definitions) {
+        Map<String, float[]> cachedVectors = readVectorCache();
+        Map<String, float[]> vectorsByKey = new LinkedHashMap<>();
+        List<Document> toEmbed = new ArrayList<>();
+        for (Document definition : definitions) {
+            String key = vectorKey(definition);
+            float[] cached = cachedVectors.get(key);
+            if (cached != null) {
+                vectorsByKey.put(key, cached);
+            } else {
+                toEmbed.add(definition);
+            }
+        }
+
+        if (!toEmbed.isEmpty()) {
+            List<float[]> embedded = embeddingModel.embed(toEmbed.stream().map(Document::getText).toList());
+            for (int i = 0; i < toEmbed.size(); i++) {
+                vectorsByKey.put(vectorKey(toEmbed.get(i)), embedded.get(i));
+            }
+            writeVectorCache(vectorsByKey);
+        }
+
+        snapshot = Snapshot.of(definitions, definitions.stream().map(definition -> vectorsByKey.get(vectorKey(definition))).toList());
+        log.info("Definition index holds {} definitions ({} embedded, Vector API {})",
+                definitions.size(), toEmbed.size(), VectorMath.isVectorApiAvailable() ? "enabled" : "unavailable");
+    }
+
+    public boolean isReady() {
+        return snapshot.size() > 0;
+    }
+
+    /**
+     * Reads a definition by id without a search, for citation links that outlive the answer that cited them.
+     */
+    public Optional<Document> findById(String id) {
+        // The corpus is a handful of documents, so a linear scan is enough.
+        return snapshot.documents().stream()
+                .filter(definition -> definition.getId().equals(id))
+                .findFirst()
+                .map(definition -> new Document(definition.getId(), definition.getText(), new HashMap<>(definition.getMetadata())));
+    }
+
+    /**
+     * Returns up to {@code topK} definitions whose cosine similarity to the query is at least
+     * {@code similarityThreshold}, best match first, with the score set on each returned document.
+     */
+    public List<Document> search(String query, int topK, double similarityThreshold) {
+        if (snapshot.size() == 0) {
+            log.warn("Definition index is not loaded yet, returning no definitions");
+            return List.of();
+        }
+        return search(embeddingModel.embed(query), topK, similarityThreshold);
+    }
+
+    /**
+     * Same as {@link #search(String, int, double)} for a query that is already embedded with the same model.
+     */
+    public List<Document> search(float[] queryEmbedding, int topK, double similarityThreshold) {
+        Snapshot current = snapshot;
+        if (current.size() == 0) {
+            log.warn("Definition index is not loaded yet, returning no definitions");
+            return List.of();
+        }
+        float[] queryVector = queryEmbedding.clone();
+        VectorMath.normalize(queryVector);
+        return search(current, queryVector, topK, similarityThreshold);
+    }
+
+    private static List<Document> search(Snapshot current, float[] queryVector, int topK, double similarityThreshold) {
+        if (queryVector.length != current.dimensions()) {
+            throw new IllegalArgumentException("Query vector has " + queryVector.length
+                    + " dimensions, the definition index " + current.dimensions());
+        }
+
+        List<Document> matches = new ArrayList<>();
+        for (int i = 0; i < current.size(); i++) {
+            float cosine = VectorMath.dot(queryVector, 0, current.vectors(), i * current.dimensions(), current.dimensions());
+            if (cosine >= similarityThreshold) {
+                Document definition = current.documents().get(i);
+                matches.add(Document.builder()
+                        .id(definition.getId())
+                        .text(definition.getText())
+                        .metadata(new HashMap<>(definition.getMetadata()))
+                        .score((1.0 + cosine) / 2.0)
+                        .build());
+            }
+        }
+        matches.sort(Comparator.comparing(Document::getScore).reversed());
+        return matches.size() > topK ? List.copyOf(matches.subList(0, topK)) : matches;
+    }
+
+    private String vectorKey(Document definition) {
+        return modelName + ":" + definition.getMetadata().get(METADATA_CONTENT_SHA256);
+    }
+
+    private Map<String, float[]> readVectorCache() {
+        Path cacheFile = Path.of(properties.getVectorCacheFile());
+        if (!Files.isRegularFile(cacheFile)) return Map.of();
+        try {
+            return objectMapper.readValue(cacheFile.toFile(), VECTOR_CACHE_TYPE);
+        } catch (IOException exception) {
+            log.warn("Ignoring unreadable definition vector cache '{}': {}", cacheFile, exception.getMessage());
+            return Map.of();
+        }
+    }
+
+    private void writeVectorCache(Map<String, float[]> vectorsByKey) {
+        Path cacheFile = Path.of(properties.getVectorCacheFile());
+        Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try {
+            if (cacheFile.getParent() != null) Files.createDirectories(cacheFile.getParent());
+            Files.write(tempFile, objectMapper.writeValueAsBytes(vectorsByKey));
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            log.warn("Failed to write definition vector cache '{}': {}", cacheFile, exception.getMessage());
+        }
+    }
+
+    /**
+     * Immutable view of the index: the documents and their unit-length vectors packed row by row in one array.
+     */
+    private record Snapshot(List<Document> documents, float[] vectors, int dimensions) {
+
+        private static final Snapshot EMPTY = new Snapshot(List.of(), new float[0], 0);
+
+        private static Snapshot of(List<Document> documents, List<float[]> vectors) {
+            if (documents.isEmpty()) return EMPTY;
+
+            int dimensions = vectors.get(0).length;
+            float[] packed = new float[documents.size() * dimensions];
+            for (int i = 0; i < vectors.size(); i++) {
+                float[] vector = vectors.get(i).clone();
+                VectorMath.normalize(vector);
+                System.arraycopy(vector, 0, packed, i * dimensions, dimensions);
+            }
+            return new Snapshot(List.copyOf(documents), packed, dimensions);
+        }
+
+        private int size() {
+            return documents.size();
+        }
+    }
+}
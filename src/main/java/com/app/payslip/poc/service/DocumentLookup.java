@@ -0,0 +1,45 @@
+package com.app.payslip.poc.service;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Key-based access to documents in the vector store, for reads that do not need a similarity search.
+ */
+public interface DocumentLookup {
+
+    Set<String> existingIds(Collection<String> ids);
+
+    /**
+     * Reads a single document by its docId, without its embedding.
+     */
+    Optional<Document> findById(String docId);
+
+    /**
+     * Reads several documents by docId in one round trip, without their embeddings. Ids that are not found are absent
+     * from the returned map.
+     */
+    Map<String, Document> findByIds(Collection<String> docIds);
+
+    /**
+     * Similarity search with an already computed query embedding, so a caller that searches several indexes for the
+     * same text embeds it only once. As with {@code SearchRequest.similarityThreshold} on the Elasticsearch store, the
+     * threshold applies to the raw cosine; returned scores use the {@code (1 + cosine) / 2} scale of {@code _score}.
+     *
+     * @param filter metadata filter, or {@code null} for none
+     */
+    List<Document> similaritySearch(float[] queryVector, int topK, double similarityThreshold, Filter.Expression filter);
+
+    /**
+     * Streams every document matching the metadata filter to the consumer, without embeddings and in no particular
+     * order.
+     */
+    void scan(Filter.Expression filter, Consumer<Document> consumer);
+}
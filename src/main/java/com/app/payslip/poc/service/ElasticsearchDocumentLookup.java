@@ -0,0 +1,271 @@
+package com.app.payslip.poc.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.elasticsearch.ElasticsearchAiSearchFilterExpressionConverter;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@Profile("!local-vector-store")
+public class ElasticsearchDocumentLookup implements DocumentLookup {
+
+    private static final String EMBEDDING_FIELD = "embedding";
+    private static final String METADATA_DOC_ID = "docId";
+    private static final String DOC_ID_KEYWORD_FIELD = "metadata." + METADATA_DOC_ID + ".keyword";
+    private static final int SCAN_PAGE_SIZE = 500;
+    private static final String SCAN_KEEP_ALIVE = "1m";
+    private static final int KNN_MIN_CANDIDATES = 100;
+    private static final int KNN_CANDIDATES_PER_RESULT = 10;
+    private static final String MATCH_ALL_QUERY = "*";
+    private static final String METADATA_DISTANCE = "distance";
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final String indexName;
+
+    public ElasticsearchDocumentLookup(
+            ElasticsearchClient elasticsearchClient,
+            @Value("${spring.ai.vectorstore.elasticsearch.index-name}") String indexName
+    ) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.indexName = indexName;
+    }
+
+    @Override
+    public Set<String> existingIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) return Set.of();
+
+        try {
+            MgetResponse<Object> response = elasticsearchClient.mget(request -> request
+                            .index(indexName)
+                            .ids(List.copyOf(ids))
+                            .source(source -> source.fetch(false)),
+                    Object.class);
+
+            return response.docs().stream()
+                    .filter(MultiGetResponseItem::isResult)
+                    .map(MultiGetResponseItem::result)
+                    .filter(result -> result.found())
+                    .map(result -> result.id())
+                    .collect(Collectors.toSet());
+        } catch (IOException | RuntimeException exception) {
+            log.warn("Existence check against index '{}' failed, treating {} ids as new: {}",
+                    indexName, ids.size(), exception.getMessage());
+            return Set.of();
+        }
+    }
+
+    /**
+     * Payslip sections use their docId as Elasticsearch {@code _id}, so this is normally a single get. Documents
+     * indexed before ids were deterministic are found through a term query on the docId metadata instead.
+     */
+    @Override
+    public Optional<Document> findById(String docId) {
+        if (docId == null || docId.isBlank()) return Optional.empty();
+
+        try {
+            GetResponse<StoredDocument> response = elasticsearchClient.get(request -> request
+                            .index(indexName)
+                            .id(docId)
+                            .sourceExcludes(EMBEDDING_FIELD),
+                    StoredDocument.class);
+            if (response.found() && response.source() != null) {
+                return Optional.of(response.source().toDocument(response.id()));
+            }
+
+            SearchResponse<StoredDocument> search = elasticsearchClient.search(request -> request
+                            .index(indexName)
+                            .size(1)
+                            .query(query -> query.term(term -> term.field(DOC_ID_KEYWORD_FIELD).value(docId)))
+                            .source(source -> source.filter(filter -> filter.excludes(EMBEDDING_FIELD))),
+                    StoredDocument.class);
+            return search.hits().hits().stream()
+                    .filter(hit -> hit.source() != null)
+                    .findFirst()
+                    .map(hit -> hit.source().toDocument(hit.id()));
+        } catch (IOException | RuntimeException exception) {
+            log.warn("Lookup of document '{}' in index '{}' failed: {}", docId, indexName, exception.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * One mget for all ids; ids it does not find (documents indexed before ids were deterministic) are looked up with a
+     * single terms query on the docId metadata, as {@link #findById} does for one id. Those documents have a random
+     * {@code _id}, so their hits are keyed on the docId metadata the caller asked for.
+     */
+    @Override
+    public Map<String, Document> findByIds(Collection<String> docIds) {
+        if (docIds == null || docIds.isEmpty()) return Map.of();
+
+        try {
+            MgetResponse<StoredDocument> response = elasticsearchClient.mget(request -> request
+                            .index(indexName)
+                            .ids(List.copyOf(docIds))
+                            .sourceExcludes(EMBEDDING_FIELD),
+                    StoredDocument.class);
+
+            Map<String, Document> documents = new LinkedHashMap<>();
+            response.docs().stream()
+                    .filter(MultiGetResponseItem::isResult)
+                    .map(MultiGetResponseItem::result)
+                    .filter(result -> result.found() && result.source() != null)
+                    .forEach(result -> documents.put(result.id(), result.source().toDocument(result.id())));
+
+            List<FieldValue> missing = docIds.stream()
+                    .filter(docId -> !documents.containsKey(docId))
+                    .distinct()
+                    .map(FieldValue::of)
+                    .toList();
+            if (!missing.isEmpty()) {
+                SearchResponse<StoredDocument> search = elasticsearchClient.search(request -> request
+                                .index(indexName)
+                                .size(missing.size())
+                                .query(query -> query.terms(terms -> terms
+                                        .field(DOC_ID_KEYWORD_FIELD)
+                                        .terms(values -> values.value(missing))))
+                                .source(source -> source.filter(filter -> filter.excludes(EMBEDDING_FIELD))),
+                        StoredDocument.class);
+                search.hits().hits().stream()
+                        .filter(hit -> hit.source() != null && hit.source().docId() != null)
+                        .forEach(hit -> documents.putIfAbsent(hit.source().docId(), hit.source().toDocument(hit.id())));
+            }
+            return documents;
+        } catch (IOException | RuntimeException exception) {
+            log.warn("Lookup of {} documents in index '{}' failed: {}", docIds.size(), indexName, exception.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * kNN query on the embedding field with the metadata filter applied inside the search. The threshold goes to the
+     * kNN {@code similarity} parameter, which is the raw cosine for the cosine index, as {@code ElasticsearchVectorStore}
+     * passes {@code SearchRequest.similarityThreshold}; the returned {@code _score} is {@code (1 + cosine) / 2}.
+     */
+    @Override
+    public List<Document> similaritySearch(float[] queryVector, int topK, double similarityThreshold, Filter.Expression filter) {
+        if (topK <= 0) return List.of();
+
+        List<Float> vector = new ArrayList<>(queryVector.length);
+        for (float component : queryVector) vector.add(component);
+        String queryString = filter == null
+                ? MATCH_ALL_QUERY
+                : new ElasticsearchAiSearchFilterExpressionConverter().convertExpression(filter);
+
+        try {
+            SearchResponse<StoredDocument> response = elasticsearchClient.search(request -> request
+                            .index(indexName)
+                            .size(topK)
+                            .knn(knn -> knn
+                                    .field(EMBEDDING_FIELD)
+                                    .queryVector(vector)
+                                    .k(topK)
+                                    .similarity((float) similarityThreshold)
+                                    .numCandidates(Math.max(KNN_MIN_CANDIDATES, topK * KNN_CANDIDATES_PER_RESULT))
+                                    .filter(query -> query.queryString(string -> string.query(queryString))))
+                            .source(source -> source.filter(sourceFilter -> sourceFilter.excludes(EMBEDDING_FIELD))),
+                    StoredDocument.class);
+
+            List<Document> results = new ArrayList<>();
+            for (Hit<StoredDocument> hit : response.hits().hits()) {
+                if (hit.source() == null) continue;
+                results.add(hit.source().toScoredDocument(hit.id(), Optional.ofNullable(hit.score()).orElse(0.0)));
+            }
+            return results;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Similarity search on index '" + indexName + "' failed", exception);
+        }
+    }
+
+    /**
+     * Walks the matching documents with a scroll, translating the filter the same way the vector store does for
+     * similarity searches. Failures propagate, since a partial scan would look like a complete one.
+     */
+    @Override
+    public void scan(Filter.Expression filter, Consumer<Document> consumer) {
+        String queryString = new ElasticsearchAiSearchFilterExpressionConverter().convertExpression(filter);
+        String scrollId = null;
+        try {
+            ResponseBody<StoredDocument> page = elasticsearchClient.search(request -> request
+                            .index(indexName)
+                            .size(SCAN_PAGE_SIZE)
+                            .scroll(time -> time.time(SCAN_KEEP_ALIVE))
+                            .query(query -> query.queryString(string -> string.query(queryString)))
+                            .source(source -> source.filter(sourceFilter -> sourceFilter.excludes(EMBEDDING_FIELD))),
+                    StoredDocument.class);
+
+            while (true) {
+                scrollId = page.scrollId();
+                List<Hit<StoredDocument>> hits = page.hits().hits();
+                if (hits.isEmpty()) break;
+                hits.stream()
+                        .filter(hit -> hit.source() != null)
+                        .forEach(hit -> consumer.accept(hit.source().toDocument(hit.id())));
+
+                String currentScrollId = scrollId;
+                page = elasticsearchClient.scroll(request -> request
+                                .scrollId(currentScrollId)
+                                .scroll(time -> time.time(SCAN_KEEP_ALIVE)),
+                        StoredDocument.class);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Scan of index '" + indexName + "' failed", exception);
+        } finally {
+            clearScroll(scrollId);
+        }
+    }
+
+    private void clearScroll(String scrollId) {
+        if (scrollId == null) return;
+        try {
+            elasticsearchClient.clearScroll(request -> request.scrollId(scrollId));
+        } catch (IOException | RuntimeException exception) {
+            log.debug("Could not clear scroll on index '{}': {}", indexName, exception.getMessage());
+        }
+    }
+
+    /**
+     * The {@code _source} layout written by the Elasticsearch vector store, minus the embedding.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record StoredDocument(String id, String content, Map<String, Object> metadata) {
+
+        private String docId() {
+            return metadata == null || metadata.get(METADATA_DOC_ID) == null ? null : metadata.get(METADATA_DOC_ID).toString();
+        }
+
+        private Document toDocument(String elasticsearchId) {
+            Map<String, Object> documentMetadata = new HashMap<>(Optional.ofNullable(metadata).orElse(Map.of()));
+            return new Document(Optional.ofNullable(id).orElse(elasticsearchId), Optional.ofNullable(content).orElse(""), documentMetadata);
+        }
+
+        private Document toScoredDocument(String elasticsearchId, double score) {
+            Map<String, Object> documentMetadata = new HashMap<>(Optional.ofNullable(metadata).orElse(Map.of()));
+            documentMetadata.put(METADATA_DISTANCE, 1.0 - score);
+            return Document.builder()
+                    .id(Optional.ofNullable(id).orElse(elasticsearchId))
+                    .text(Optional.ofNullable(content).orElse(""))
+                    .metadata(documentMetadata)
+                    .score(score)
+                    .build();
+        }
+    }
+}
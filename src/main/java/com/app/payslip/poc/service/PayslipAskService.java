@@ -4,24 +4,25 @@ import com.app.payslip.poc.config.PromptConfigProperties;
 import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
 import com.app.payslip.poc.model.PayslipAskResponseDTO;
 import com.app.payslip.poc.model.PayslipAskResponseDTO.PayslipAskCitationDTO;
+import com.app.payslip.poc.util.CancellableTask;
+import com.app.payslip.poc.util.SpooledMultipartFile;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.rag.Query;
-import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
-import org.springframework.ai.rag.generation.augmentation.ContextualQueryAugmenter;
-import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
-import org.springframework.ai.rag.retrieval.search.VectorStoreDocumentRetriever;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.filter.Filter;
 import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -35,47 +36,105 @@ public class PayslipAskService {
     private static final int DEFINITION_TOP_K = 4;
     private static final String DOCUMENT_SEPARATOR = "\n---\n";
     private static final String UNKNOWN_DOC_ID = "unknown";
-    private static final String TYPE_DEFINITION = "definition";
     private static final int TEXT_PREVIEW_LENGTH = 120;
+    private static final String NO_CONTEXT = "(no matching payslip or definition context)";
 
     private final PayslipExtractionService extractionService;
-    private final VectorStore vectorStore;
+    private final DocumentLookup documentLookup;
     private final ChatClient chatClient;
     private final PromptConfigProperties promptConfig;
     private final SemanticDefinitionMatcher semanticDefinitionMatcher;
+    private final EmbeddingModel embeddingModel;
+    private final ExecutorService virtualThreadExecutor;
+    private final PayslipSectionService sectionService;
+    private final DefinitionIndex definitionIndex;
+    private final PayslipMetrics metrics;
 
     public PayslipAskResponseDTO ask(MultipartFile payslipFile, String question) throws IOException {
-        log.info("Processing payslip question: {}", question);
+        PreparedQuestion prepared = prepare(payslipFile, question);
 
-        ExtractedPayslipDataDTO extractedData = extractionService.scrapeAndIndexPayslip(payslipFile);
-        PayslipIdentifiers identifiers = PayslipIdentifiers.from(extractedData);
+        ChatResponse chatResponse = answerPrompt(prepared).call().chatResponse();
+        prepared.timer().lap("generation");
 
-        List<Document> retrievedDocuments = retrieveRelevantDocuments(question, identifiers);
-        ChatResponse chatResponse = generateAnswer(question, retrievedDocuments, identifiers);
+        log.info("Answered payslip question with {} context documents in {}", prepared.documents().size(), prepared.timer());
+        return buildAnswerResponse(chatResponse, prepared.documents());
+    }
 
-        return buildAnswerResponse(chatResponse, retrievedDocuments);
+    /**
+     * Runs {@link #ask} on a virtual thread; the upload is spooled to a temporary file because it does not outlive the
+     * request, and the file is deleted once the task finishes or is cancelled.
+     */
+    public CancellableTask<PayslipAskResponseDTO> askAsync(MultipartFile payslipFile, String question) throws IOException {
+        SpooledMultipartFile payslipCopy = SpooledMultipartFile.spool(payslipFile);
+        CancellableTask<PayslipAskResponseDTO> task = CancellableTask.submit(virtualThreadExecutor, () -> ask(payslipCopy, question));
+        task.result().whenComplete((answer, failure) -> payslipCopy.delete());
+        return task;
     }
 
-    private List<Document> retrieveRelevantDocuments(String question, PayslipIdentifiers identifiers) {
-        List<Document> payslipDocuments = retrievePayslipDocuments(question, identifiers);
-        List<Document> definitionDocuments = retrieveDefinitionDocuments(question);
+    /**
+     * Runs extraction and retrieval before returning, so the citations are known up front; the answer tokens are
+     * only generated once the returned stream is subscribed to.
+     */
+    public AnswerStream askStream(MultipartFile payslipFile, String question) throws IOException {
+        PreparedQuestion prepared = prepare(payslipFile, question);
+
+        Flux<String> tokens = answerPrompt(prepared).stream().chatResponse()
+                .map(this::extractAnswerText)
+                .filter(token -> !token.isEmpty())
+                .doOnComplete(() -> {
+                    prepared.timer().lap("generation");
+                    log.info("Streamed answer with {} context documents in {}", prepared.documents().size(), prepared.timer());
+                });
+        return new AnswerStream(buildCitations(prepared.documents()), tokens);
+    }
 
-        List<Document> semanticDefinitions = semanticDefinitionMatcher.findRequiredDefinitions(
-                question,
-                definitionDocuments
-        );
+    private PreparedQuestion prepare(MultipartFile payslipFile, String question) throws IOException {
+        log.info("Processing payslip question: {}", question);
+        StageTimer timer = new StageTimer(metrics);
 
-        return mergeAndDeduplicateDocuments(payslipDocuments, definitionDocuments, semanticDefinitions);
+        ExtractedPayslipDataDTO extractedData = extractionService.scrapeAndIndexPayslip(payslipFile, PayslipMetrics.ENDPOINT_ASK);
+        PayslipIdentifiers identifiers = PayslipIdentifiers.from(extractedData);
+        timer.lap("extraction");
+
+        List<Document> retrievedDocuments = retrieveRelevantDocuments(question, identifiers, timer);
+        sectionService.rememberCitedSections(retrievedDocuments);
+        String employerNumber = Optional.ofNullable(extractedData.employer())
+                .map(ExtractedPayslipDataDTO.EmployerInfo::employerNumber)
+                .orElse("");
+        return new PreparedQuestion(question, employerNumber, retrievedDocuments, timer);
     }
 
-    private List<Document> retrievePayslipDocuments(String question, PayslipIdentifiers identifiers) {
-        DocumentRetriever retriever = createPayslipRetriever(identifiers);
-        return retriever.retrieve(new Query(question));
+    /**
+     * Embeds the question once and passes the vector to both searches: the payslip search in the vector store, which
+     * runs in the background, and the in-process definition index. The searches overlap, so each one is timed inside
+     * its own task, and the {@code retrieval} stage records the wall-clock time until both are done.
+     */
+    private List<Document> retrieveRelevantDocuments(String question, PayslipIdentifiers identifiers, StageTimer timer) {
+        float[] questionEmbedding = embeddingModel.embed(question);
+        timer.lap("embedding");
+
+        CompletableFuture<TimedSearch> payslipSearch = CompletableFuture.supplyAsync(
+                () -> TimedSearch.run(() -> retrievePayslipDocuments(questionEmbedding, identifiers)), virtualThreadExecutor);
+        TimedSearch definitionSearch = TimedSearch.run(
+                () -> definitionIndex.search(questionEmbedding, DEFINITION_TOP_K, DEFINITION_SIMILARITY_THRESHOLD));
+        TimedSearch payslipResult = payslipSearch.join();
+        timer.lap("retrieval");
+        timer.record("definition-search", definitionSearch.nanos());
+        timer.record("payslip-search", payslipResult.nanos());
+
+        List<Document> definitionDocuments = definitionSearch.documents();
+        List<Document> payslipDocuments = payslipResult.documents();
+        metrics.recordRetrievedDocuments("definitions", definitionDocuments.size());
+        metrics.recordRetrievedDocuments("payslips", payslipDocuments.size());
+
+        List<Document> semanticDefinitions = semanticDefinitionMatcher.findRequiredDefinitions(definitionDocuments);
+
+        return mergeAndDeduplicateDocuments(payslipDocuments, definitionDocuments, semanticDefinitions);
     }
 
-    private List<Document> retrieveDefinitionDocuments(String question) {
-        DocumentRetriever retriever = createDefinitionRetriever();
-        return retriever.retrieve(new Query(question));
+    private List<Document> retrievePayslipDocuments(float[] questionEmbedding, PayslipIdentifiers identifiers) {
+        return documentLookup.similaritySearch(questionEmbedding, PAYSLIP_TOP_K, PAYSLIP_SIMILARITY_THRESHOLD,
+                buildPayslipFilter(identifiers));
     }
 
     private List<Document> mergeAndDeduplicateDocuments(
@@ -91,7 +150,6 @@ public class PayslipAskService {
         } else {
             combined.addAll(payslipDocs);
             combined.addAll(definitionDocs);
-            combined.addAll(semanticDefs);
         }
 
         return deduplicateByDocId(combined);
@@ -101,21 +159,11 @@ public class PayslipAskService {
         Map<String, Document> byDocId = new LinkedHashMap<>();
         for (Document doc : documents) {
             String docId = extractDocId(doc.getMetadata());
-            byDocId.putIfAbsent(docId, doc);
+            byDocId.putIfAbsent(UNKNOWN_DOC_ID.equals(docId) ? doc.getId() : docId, doc);
         }
         return new ArrayList<>(byDocId.values());
     }
 
-    private DocumentRetriever createPayslipRetriever(PayslipIdentifiers identifiers) {
-        Filter.Expression filter = buildPayslipFilter(identifiers);
-        return VectorStoreDocumentRetriever.builder()
-                .vectorStore(vectorStore)
-                .similarityThreshold(PAYSLIP_SIMILARITY_THRESHOLD)
-                .topK(PAYSLIP_TOP_K)
-                .filterExpression(filter)
-                .build();
-    }
-
     private Filter.Expression buildPayslipFilter(PayslipIdentifiers identifiers) {
         FilterExpressionBuilder builder = new FilterExpressionBuilder();
 
@@ -127,50 +175,18 @@ public class PayslipAskService {
         return builder.and(idFilter, builder.eq("period.monthKey", identifiers.monthKey())).build();
     }
 
-    private DocumentRetriever createDefinitionRetriever() {
-        FilterExpressionBuilder builder = new FilterExpressionBuilder();
-        return VectorStoreDocumentRetriever.builder()
-                .vectorStore(vectorStore)
-                .similarityThreshold(DEFINITION_SIMILARITY_THRESHOLD)
-                .topK(DEFINITION_TOP_K)
-                .filterExpression(builder.eq("type", TYPE_DEFINITION).build())
-                .build();
-    }
-
-    private ChatResponse generateAnswer(String question, List<Document> documents, PayslipIdentifiers identifiers) {
-        DocumentRetriever combinedRetriever = createCombinedRetriever(identifiers);
-        RetrievalAugmentationAdvisor advisor = createRetrievalAdvisor(combinedRetriever);
-
-        String contextBlock = buildContextBlock(documents);
-        String citationsText = buildCitationsText(documents);
+    private ChatClient.ChatClientRequestSpec answerPrompt(PreparedQuestion prepared) {
+        List<Document> documents = prepared.documents();
+        String userMessage = promptConfig.getPayslip().getUserAsk().formatted(
+                prepared.question(),
+                documents.isEmpty() ? NO_CONTEXT : buildContextBlock(documents),
+                buildCitationsText(documents)
+        );
 
         return chatClient.prompt()
-                .advisors(advisor)
                 .system(promptConfig.getPayslip().getSystemAsk())
-                .advisors(advisorSpec -> advisorSpec.param("question_answer_context", contextBlock))
-                .advisors(advisorSpec -> advisorSpec.param("citations", citationsText))
-                .user(question)
-                .call()
-                .chatResponse();
-    }
-
-    private RetrievalAugmentationAdvisor createRetrievalAdvisor(DocumentRetriever retriever) {
-        return RetrievalAugmentationAdvisor.builder()
-                .documentRetriever(retriever)
-                .queryAugmenter(ContextualQueryAugmenter.builder().allowEmptyContext(false).build())
-                .build();
-    }
-
-    private DocumentRetriever createCombinedRetriever(PayslipIdentifiers identifiers) {
-        DocumentRetriever payslipRetriever = createPayslipRetriever(identifiers);
-        DocumentRetriever definitionRetriever = createDefinitionRetriever();
-
-        return query -> {
-            List<Document> combined = new ArrayList<>();
-            combined.addAll(payslipRetriever.retrieve(query));
-            combined.addAll(definitionRetriever.retrieve(query));
-            return combined;
-        };
+                .user(userMessage)
+                .advisors(TokenUsageAdvisor.usage(PayslipMetrics.ENDPOINT_ASK, PayslipMetrics.OPERATION_ASK, prepared.employerNumber(), 0));
     }
 
     private String buildContextBlock(List<Document> documents) {
@@ -253,6 +269,56 @@ public class PayslipAskService {
                 .orElse(defaultValue);
     }
 
+    /**
+     * Citations known before generation starts, and the answer tokens as the model produces them.
+     */
+    public record AnswerStream(List<PayslipAskCitationDTO> citations, Flux<String> tokens) {
+    }
+
+    private record PreparedQuestion(String question, String employerNumber, List<Document> documents, StageTimer timer) {
+    }
+
+    private record TimedSearch(List<Document> documents, long nanos) {
+        static TimedSearch run(Supplier<List<Document>> search) {
+            long startNanos = System.nanoTime();
+            List<Document> documents = search.get();
+            return new TimedSearch(documents, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Collects elapsed milliseconds per pipeline stage for the timing log line, and records each stage as
+     * {@code payslip.stage.duration{stage=ask-<stage>}}. Laps are consecutive stages on the request thread;
+     * {@link #record} adds a stage that was timed on its own, such as one of several concurrent searches.
+     */
+    private static final class StageTimer {
+        private final PayslipMetrics metrics;
+        private final Map<String, Long> stageMillis = new LinkedHashMap<>();
+        private final long startNanos = System.nanoTime();
+        private long lapStartNanos = startNanos;
+
+        private StageTimer(PayslipMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        private void lap(String stage) {
+            long now = System.nanoTime();
+            stageMillis.put(stage, (now - lapStartNanos) / 1_000_000);
+            metrics.recordStage("ask-" + stage, now - lapStartNanos);
+            lapStartNanos = now;
+        }
+
+        private void record(String stage, long nanos) {
+            stageMillis.put(stage, nanos / 1_000_000);
+            metrics.recordStage("ask-" + stage, nanos);
+        }
+
+        @Override
+        public String toString() {
+            return (System.nanoTime() - startNanos) / 1_000_000 + " ms " + stageMillis;
+        }
+    }
+
     record PayslipIdentifiers(String nationalId, String employeeNumber, String monthKey) {
         static PayslipIdentifiers from(ExtractedPayslipDataDTO dto) {
             String nationalId = Optional.ofNullable(dto.personal())
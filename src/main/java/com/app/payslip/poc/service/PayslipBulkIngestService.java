@@ -0,0 +1,323 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.config.BulkIngestProperties;
+import com.app.payslip.poc.model.BulkIngestJobDTO;
+import com.app.payslip.poc.model.BulkIngestJobDTO.BulkIngestFileDTO;
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
+import com.app.payslip.poc.util.InMemoryMultipartFile;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Accepts batches of payslips (loose files or zip archives) and extracts and indexes them in the background.
+ * <p>
+ * Uploads are spooled to disk first so the HTTP request can return immediately; every file then runs on its own
+ * virtual thread, with a semaphore capping how many extractions hit the model at the same time. A submission is
+ * rejected as a whole when it holds more than {@code payslip.bulk.max-entries} files or more than
+ * {@code payslip.bulk.max-total-bytes} of (uncompressed) content, so one upload cannot fill the spool disk or queue an
+ * unbounded number of model calls.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PayslipBulkIngestService {
+
+    private static final String STATUS_QUEUED = "QUEUED";
+    private static final String STATUS_RUNNING = "RUNNING";
+    private static final String STATUS_SUCCEEDED = "SUCCEEDED";
+    private static final String STATUS_FAILED = "FAILED";
+    private static final String JOB_STATUS_COMPLETED = "COMPLETED";
+    private static final String JOB_STATUS_COMPLETED_WITH_ERRORS = "COMPLETED_WITH_ERRORS";
+    private static final Set<String> ZIP_CONTENT_TYPES = Set.of("application/zip", "application/x-zip-compressed");
+    private static final String ZIP_EXTENSION = ".zip";
+
+    private final PayslipExtractionService extractionService;
+    private final ExecutorService virtualThreadExecutor;
+    private final BulkIngestProperties properties;
+
+    private final Map<String, BulkIngestJob> jobs = new LinkedHashMap<>();
+    private Semaphore extractionPermits;
+
+    @PostConstruct
+    void initialize() {
+        extractionPermits = new Semaphore(properties.getMaxConcurrency(), true);
+    }
+
+    public BulkIngestJobDTO submit(List<MultipartFile> uploads) throws IOException {
+        String jobId = UUID.randomUUID().toString();
+        Path spoolDirectory = Files.createTempDirectory(Path.of(properties.getSpoolDirectory()), "payslip-bulk-" + jobId);
+
+        List<FileEntry> entries = new ArrayList<>();
+        SpoolBudget budget = new SpoolBudget(properties.getMaxEntries(), properties.getMaxTotalBytes());
+        try {
+            for (MultipartFile upload : uploads) {
+                if (isZip(upload)) {
+                    spoolZip(upload, spoolDirectory, entries, budget);
+                } else {
+                    try (InputStream content = upload.getInputStream()) {
+                        entries.add(spool(upload.getOriginalFilename(), upload.getContentType(), content, spoolDirectory, entries.size(), budget));
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException exception) {
+            FileSystemUtils.deleteRecursively(spoolDirectory.toFile());
+            throw exception;
+        }
+
+        BulkIngestJob job = new BulkIngestJob(jobId, Instant.now(), spoolDirectory, List.copyOf(entries));
+        register(job);
+        log.info("Bulk ingest job {} accepted with {} files", jobId, entries.size());
+
+        if (entries.isEmpty()) {
+            finish(job);
+        }
+        for (FileEntry entry : entries) {
+            if (STATUS_FAILED.equals(entry.status)) {
+                onEntryFinished(job);
+            } else {
+                virtualThreadExecutor.execute(() -> process(job, entry));
+            }
+        }
+        return job.toDTO();
+    }
+
+    public Optional<BulkIngestJobDTO> getJob(String jobId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(jobId)).map(BulkIngestJob::toDTO);
+        }
+    }
+
+    private void process(BulkIngestJob job, FileEntry entry) {
+        try {
+            extractionPermits.acquire();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            entry.fail("Interrupted before extraction started");
+            onEntryFinished(job);
+            return;
+        }
+
+        try {
+            entry.status = STATUS_RUNNING;
+            MultipartFile file = new InMemoryMultipartFile(
+                    entry.fileName, entry.fileName, entry.contentType, Files.readAllBytes(entry.spoolPath)
+            );
+            ExtractedPayslipDataDTO payslipData = extractionService.scrapeAndIndexPayslip(file, PayslipMetrics.ENDPOINT_BULK);
+            entry.succeed(monthKey(payslipData));
+        } catch (Exception exception) {
+            log.warn("Bulk ingest job {} failed on file '{}': {}", job.jobId, entry.fileName, exception.getMessage());
+            entry.fail(exception.getMessage());
+        } finally {
+            extractionPermits.release();
+            deleteQuietly(entry.spoolPath);
+            onEntryFinished(job);
+        }
+    }
+
+    private void onEntryFinished(BulkIngestJob job) {
+        if (job.remaining.decrementAndGet() == 0) {
+            finish(job);
+        }
+    }
+
+    private void finish(BulkIngestJob job) {
+        job.finishedAt = Instant.now();
+        FileSystemUtils.deleteRecursively(job.spoolDirectory.toFile());
+        log.info("Bulk ingest job {} finished: {} files, {} failed", job.jobId, job.entries.size(), job.count(STATUS_FAILED));
+    }
+
+    private void register(BulkIngestJob job) {
+        synchronized (jobs) {
+            jobs.put(job.jobId, job);
+            Iterator<BulkIngestJob> oldestFirst = jobs.values().iterator();
+            while (jobs.size() > properties.getMaxRetainedJobs() && oldestFirst.hasNext()) {
+                if (oldestFirst.next().finishedAt != null) {
+                    oldestFirst.remove();
+                }
+            }
+        }
+    }
+
+    private void spoolZip(MultipartFile upload, Path spoolDirectory, List<FileEntry> entries, SpoolBudget budget) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(upload.getInputStream())) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zip.getNextEntry()) != null) {
+                if (zipEntry.isDirectory()) continue;
+                String fileName = Path.of(zipEntry.getName()).getFileName().toString();
+                if (fileName.startsWith(".")) continue;
+                String contentType = MediaTypeFactory.getMediaType(fileName)
+                        .map(MediaType::toString)
+                        .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+                entries.add(spool(fileName, contentType, zip, spoolDirectory, entries.size(), budget));
+            }
+        }
+    }
+
+    private FileEntry spool(String fileName, String contentType, InputStream content, Path spoolDirectory, int position,
+                            SpoolBudget budget) throws IOException {
+        budget.addEntry();
+        String safeFileName = Optional.ofNullable(fileName).filter(name -> !name.isBlank()).orElse("file-" + position);
+        Path spoolPath = spoolDirectory.resolve(position + ".bin");
+        FileEntry entry = new FileEntry(safeFileName, contentType, spoolPath);
+
+        long written = 0;
+        byte[] buffer = new byte[8192];
+        try (OutputStream outputStream = Files.newOutputStream(spoolPath)) {
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                budget.addBytes(read);
+                written += read;
+                if (written > properties.getMaxFileBytes()) {
+                    entry.fail("File exceeds the maximum size of " + properties.getMaxFileBytes() + " bytes");
+                    break;
+                }
+                outputStream.write(buffer, 0, read);
+            }
+        }
+        if (STATUS_FAILED.equals(entry.status)) {
+            deleteQuietly(spoolPath);
+        }
+        return entry;
+    }
+
+    private boolean isZip(MultipartFile upload) {
+        String contentType = Optional.ofNullable(upload.getContentType()).orElse("");
+        String fileName = Optional.ofNullable(upload.getOriginalFilename()).orElse("").toLowerCase(Locale.ROOT);
+        return ZIP_CONTENT_TYPES.contains(contentType) || fileName.endsWith(ZIP_EXTENSION);
+    }
+
+    private String monthKey(ExtractedPayslipDataDTO payslipData) {
+        return Optional.ofNullable(payslipData)
+                .map(ExtractedPayslipDataDTO::period)
+                .map(ExtractedPayslipDataDTO.PeriodInfo::periodStart)
+                .map(date -> "%d-%02d".formatted(date.getYear(), date.getMonthValue()))
+                .orElse("");
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException exception) {
+            log.debug("Could not delete spooled file '{}': {}", path, exception.getMessage());
+        }
+    }
+
+    /**
+     * Running totals of one submission; exceeding either limit rejects the whole upload with 413.
+     */
+    private static final class SpoolBudget {
+        private final int maxEntries;
+        private final long maxBytes;
+        private int entries;
+        private long bytes;
+
+        private SpoolBudget(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        private void addEntry() {
+            if (++entries > maxEntries) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Bulk upload holds more than " + maxEntries + " files");
+            }
+        }
+
+        private void addBytes(long count) {
+            bytes += count;
+            if (bytes > maxBytes) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Bulk upload exceeds " + maxBytes + " bytes of file content");
+            }
+        }
+    }
+
+    private static final class BulkIngestJob {
+        private final String jobId;
+        private final Instant createdAt;
+        private final Path spoolDirectory;
+        private final List<FileEntry> entries;
+        private final AtomicInteger remaining;
+        private volatile Instant finishedAt;
+
+        private BulkIngestJob(String jobId, Instant createdAt, Path spoolDirectory, List<FileEntry> entries) {
+            this.jobId = jobId;
+            this.createdAt = createdAt;
+            this.spoolDirectory = spoolDirectory;
+            this.entries = entries;
+            this.remaining = new AtomicInteger(entries.size());
+        }
+
+        private int count(String status) {
+            return (int) entries.stream().filter(entry -> status.equals(entry.status)).count();
+        }
+
+        private BulkIngestJobDTO toDTO() {
+            int failed = count(STATUS_FAILED);
+            String status = finishedAt == null
+                    ? STATUS_RUNNING
+                    : failed > 0 ? JOB_STATUS_COMPLETED_WITH_ERRORS : JOB_STATUS_COMPLETED;
+
+            return BulkIngestJobDTO.builder()
+                    .jobId(jobId)
+                    .status(status)
+                    .totalFiles(entries.size())
+                    .completedFiles(count(STATUS_SUCCEEDED))
+                    .failedFiles(failed)
+                    .createdAt(createdAt)
+                    .finishedAt(finishedAt)
+                    .files(entries.stream().map(FileEntry::toDTO).toList())
+                    .build();
+        }
+    }
+
+    private static final class FileEntry {
+        private final String fileName;
+        private final String contentType;
+        private final Path spoolPath;
+        private volatile String status = STATUS_QUEUED;
+        private volatile String monthKey;
+        private volatile String error;
+
+        private FileEntry(String fileName, String contentType, Path spoolPath) {
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.spoolPath = spoolPath;
+        }
+
+        private void succeed(String monthKey) {
+            this.monthKey = monthKey;
+            this.status = STATUS_SUCCEEDED;
+        }
+
+        private void fail(String error) {
+            this.error = error;
+            this.status = STATUS_FAILED;
+        }
+
+        private BulkIngestFileDTO toDTO() {
+            return new BulkIngestFileDTO(fileName, status, monthKey, error);
+        }
+    }
+}
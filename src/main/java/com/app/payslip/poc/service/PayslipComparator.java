@@ -3,7 +3,6 @@ package com.app.payslip.poc.service;
 import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
 import com.app.payslip.poc.model.PayslipComparisonResultDTO;
 import lombok.RequiredArgsConstructor;
-import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -15,11 +14,9 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PayslipComparator {
 
-    @Tool(
-            name = "comparePayslips",
-            description = "Compares two payslips and returns field and benefit differences. " +
-                    "Use when the user asks about changes between months or why net differs."
-    )
+    /**
+     * Compares two payslips and returns the field and benefit differences, current minus previous.
+     */
     public PayslipComparisonResultDTO comparePayslips(ExtractedPayslipDataDTO previousPayslip, ExtractedPayslipDataDTO currentPayslip) {
         PayslipComparisonResultDTO.PayslipComparisonResultDTOBuilder result = PayslipComparisonResultDTO.builder()
                 .employeeNumber(Optional.ofNullable(currentPayslip.employment()).map(ExtractedPayslipDataDTO.EmploymentInfo::employeeNumber).orElse(""))
@@ -1,57 +1,277 @@
 package com.app.payslip.poc.service;
 
+import com.app.payslip.poc.config.CompareProperties;
 import com.app.payslip.poc.config.PromptConfigProperties;
 import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
+import com.app.payslip.poc.model.PayslipComparisonExplanationDTO;
+import com.app.payslip.poc.model.PayslipComparisonResultDTO;
 import com.app.payslip.poc.model.TextAnswerDTO;
+import com.app.payslip.poc.util.CancellableTask;
+import com.app.payslip.poc.util.SpooledMultipartFile;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
 
 @Service
 @RequiredArgsConstructor
 public class PayslipCompareService {
 
+    public static final String EVENT_EXTRACTION = "extraction";
+    public static final String EVENT_COMPARISON = "comparison";
+    public static final String EVENT_TOKEN = "token";
+    public static final String EVENT_DONE = "done";
+    private static final String PAYSLIP_PREVIOUS = "previous";
+    private static final String PAYSLIP_CURRENT = "current";
+    private static final BiConsumer<String, ExtractedPayslipDataDTO> IGNORE_PROGRESS = (label, payslip) -> {
+    };
+
     private final ChatClient chatClient;
     private final PayslipComparator payslipComparator;
     private final PayslipExtractionService payslipExtractionService;
     private final PromptConfigProperties promptConfig;
+    private final CompareProperties compareProperties;
+    private final ExecutorService virtualThreadExecutor;
+    private final PayslipComparisonExplainer comparisonExplainer;
+    private final PayslipMetrics metrics;
+    private final ObjectMapper objectMapper;
 
     public TextAnswerDTO compareAndExplain(
             MultipartFile previousPayslipFile,
             MultipartFile currentPayslipFile,
             String userQuestion
     ) throws IOException {
-        ExtractedPayslipDataDTO previousPayslip = payslipExtractionService.scrapeAndIndexPayslip(previousPayslipFile);
-        ExtractedPayslipDataDTO currentPayslip = payslipExtractionService.scrapeAndIndexPayslip(currentPayslipFile);
+        ExtractedPayslips extractedPayslips = extractConcurrently(previousPayslipFile, currentPayslipFile, PayslipMetrics.ENDPOINT_CHAT, IGNORE_PROGRESS);
+        PayslipComparisonResultDTO comparison = payslipComparator.comparePayslips(extractedPayslips.previous(), extractedPayslips.current());
+
+        Timer.Sample sample = metrics.startStage();
+        ChatResponse chatResponse = comparePrompt(userQuestion, extractedPayslips, comparison)
+                .call()
+                .chatResponse();
+        metrics.stopStage(sample, PayslipMetrics.STAGE_COMPARE_LLM);
+
+        return TextAnswerDTO.builder().answer(text(chatResponse)).build();
+    }
+
+    /**
+     * Runs {@link #compareAndExplain} on a virtual thread; the uploads are spooled to temporary files because they do
+     * not outlive the request, and the files are deleted once the task finishes or is cancelled.
+     */
+    public CancellableTask<TextAnswerDTO> compareAndExplainAsync(
+            MultipartFile previousPayslipFile,
+            MultipartFile currentPayslipFile,
+            String userQuestion
+    ) throws IOException {
+        List<SpooledMultipartFile> copies = spool(previousPayslipFile, currentPayslipFile);
+        CancellableTask<TextAnswerDTO> task = CancellableTask.submit(virtualThreadExecutor,
+                () -> compareAndExplain(copies.get(0), copies.get(1), userQuestion));
+        task.result().whenComplete((answer, failure) -> copies.forEach(SpooledMultipartFile::delete));
+        return task;
+    }
+
+    /**
+     * Compares the payslips without a model call: the structured diff plus an explanation rendered from a template.
+     */
+    public PayslipComparisonExplanationDTO compare(MultipartFile previousPayslipFile, MultipartFile currentPayslipFile) throws IOException {
+        ExtractedPayslips extractedPayslips = extractConcurrently(previousPayslipFile, currentPayslipFile, PayslipMetrics.ENDPOINT_COMPARE, IGNORE_PROGRESS);
+        PayslipComparisonResultDTO comparison = payslipComparator.comparePayslips(extractedPayslips.previous(), extractedPayslips.current());
+
+        return PayslipComparisonExplanationDTO.builder()
+                .explanation(comparisonExplainer.explain(comparison))
+                .comparison(comparison)
+                .build();
+    }
+
+    /**
+     * Streams the comparison as it progresses: an {@code extraction} event per payslip as soon as it is extracted, the
+     * {@code comparison} diff once both are in, then the explanation as {@code token} events and a final
+     * {@code done}. The uploads are spooled to temporary files first because the work outlives the request thread;
+     * the files are deleted when the stream ends or is cancelled.
+     */
+    public Flux<StreamEvent> compareAndExplainStream(
+            MultipartFile previousPayslipFile,
+            MultipartFile currentPayslipFile,
+            String userQuestion
+    ) throws IOException {
+        List<SpooledMultipartFile> copies = spool(previousPayslipFile, currentPayslipFile);
+        MultipartFile previousCopy = copies.get(0);
+        MultipartFile currentCopy = copies.get(1);
+
+        return Flux.create(sink -> {
+            Disposable.Composite subscriptions = Disposables.composite();
+            sink.onDispose(subscriptions);
+            subscriptions.add(() -> copies.forEach(SpooledMultipartFile::delete));
+            Future<?> task = virtualThreadExecutor.submit(() -> {
+                try {
+                    ExtractedPayslips extractedPayslips = extractConcurrently(previousCopy, currentCopy, PayslipMetrics.ENDPOINT_CHAT,
+                            (label, payslip) -> sink.next(new StreamEvent(EVENT_EXTRACTION, Map.of("payslip", label, "monthKey", monthKey(payslip)))));
 
-        String previousMonthKey = monthKey(previousPayslip);
-        String currentMonthKey = monthKey(currentPayslip);
+                    PayslipComparisonResultDTO comparison = payslipComparator.comparePayslips(extractedPayslips.previous(), extractedPayslips.current());
+                    sink.next(new StreamEvent(EVENT_COMPARISON, comparison));
+
+                    subscriptions.add(comparePrompt(userQuestion, extractedPayslips, comparison)
+                            .stream()
+                            .chatResponse()
+                            .map(PayslipCompareService::text)
+                            .filter(token -> !token.isEmpty())
+                            .subscribe(
+                                    token -> sink.next(new StreamEvent(EVENT_TOKEN, token)),
+                                    sink::error,
+                                    () -> {
+                                        sink.next(new StreamEvent(EVENT_DONE, Map.of()));
+                                        sink.complete();
+                                    }));
+                } catch (Exception exception) {
+                    sink.error(exception);
+                }
+            });
+            subscriptions.add(() -> task.cancel(true));
+        });
+    }
+
+    /**
+     * The diff is computed in Java and handed to the model in the prompt, so answering takes a single model call
+     * instead of a round trip in which the model first asks for the comparison tool.
+     */
+    private ChatClient.ChatClientRequestSpec comparePrompt(
+            String userQuestion,
+            ExtractedPayslips extractedPayslips,
+            PayslipComparisonResultDTO comparison
+    ) throws JsonProcessingException {
+        ExtractedPayslipDataDTO previousPayslip = extractedPayslips.previous();
+        ExtractedPayslipDataDTO currentPayslip = extractedPayslips.current();
         String employeeNumber = Optional.ofNullable(currentPayslip.employment()).map(ExtractedPayslipDataDTO.EmploymentInfo::employeeNumber).orElse("");
         String nationalId = Optional.ofNullable(currentPayslip.personal()).map(ExtractedPayslipDataDTO.PersonalInfo::nationalId).orElse("");
 
         String userMessage = promptConfig.getPayslip().getUserCompare().formatted(
                 userQuestion,
-                previousMonthKey,
-                currentMonthKey,
+                monthKey(previousPayslip),
+                monthKey(currentPayslip),
                 employeeNumber,
                 nationalId,
                 JsonView.from(previousPayslip),
-                JsonView.from(currentPayslip)
+                JsonView.from(currentPayslip),
+                objectMapper.writeValueAsString(comparison)
         );
 
-        String answer = chatClient
+        return chatClient
                 .prompt()
                 .system(promptConfig.getPayslip().getSystemCompare())
-                .tools(payslipComparator)
                 .user(userMessage)
-                .call()
-                .content();
+                .advisors(TokenUsageAdvisor.usage(PayslipMetrics.ENDPOINT_CHAT, PayslipMetrics.OPERATION_COMPARE, employerNumber(currentPayslip), 0));
+    }
+
+    /**
+     * Runs both extractions on virtual threads and reports each one to {@code onExtracted} (labelled
+     * {@code previous} or {@code current}) as soon as it finishes. If one fails the other is interrupted, and both
+     * are abandoned once {@code payslip.compare.extraction-timeout} has elapsed.
+     */
+    private ExtractedPayslips extractConcurrently(
+            MultipartFile previousPayslipFile,
+            MultipartFile currentPayslipFile,
+            String endpoint,
+            BiConsumer<String, ExtractedPayslipDataDTO> onExtracted
+    ) throws IOException {
+        Timer.Sample sample = metrics.startStage();
+        CancellableTask<ExtractedPayslipDataDTO> previous = startExtraction(previousPayslipFile, endpoint);
+        CancellableTask<ExtractedPayslipDataDTO> current = startExtraction(currentPayslipFile, endpoint);
+        previous.result().whenComplete((payslip, failure) -> onCompletion(PAYSLIP_PREVIOUS, payslip, failure, current, onExtracted));
+        current.result().whenComplete((payslip, failure) -> onCompletion(PAYSLIP_CURRENT, payslip, failure, previous, onExtracted));
+
+        try {
+            CompletableFuture.allOf(previous.result(), current.result())
+                    .get(compareProperties.getExtractionTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            return new ExtractedPayslips(previous.result().join(), current.result().join());
+        } catch (TimeoutException timeoutException) {
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                    "Payslip extraction did not finish within " + compareProperties.getExtractionTimeout());
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting payslips", interruptedException);
+        } catch (ExecutionException executionException) {
+            throw rootFailure(executionException, previous, current);
+        } finally {
+            previous.cancel();
+            current.cancel();
+            metrics.stopStage(sample, PayslipMetrics.STAGE_COMPARE_EXTRACTION);
+        }
+    }
+
+    private CancellableTask<ExtractedPayslipDataDTO> startExtraction(MultipartFile payslipFile, String endpoint) {
+        return CancellableTask.submit(virtualThreadExecutor, () -> payslipExtractionService.scrapeAndIndexPayslip(payslipFile, endpoint));
+    }
+
+    private static List<SpooledMultipartFile> spool(MultipartFile previousPayslipFile, MultipartFile currentPayslipFile) throws IOException {
+        SpooledMultipartFile previousCopy = SpooledMultipartFile.spool(previousPayslipFile);
+        try {
+            return List.of(previousCopy, SpooledMultipartFile.spool(currentPayslipFile));
+        } catch (IOException | RuntimeException exception) {
+            previousCopy.delete();
+            throw exception;
+        }
+    }
+
+    private static void onCompletion(
+            String label,
+            ExtractedPayslipDataDTO payslip,
+            Throwable failure,
+            CancellableTask<ExtractedPayslipDataDTO> sibling,
+            BiConsumer<String, ExtractedPayslipDataDTO> onExtracted
+    ) {
+        if (failure != null) {
+            sibling.cancel();
+        } else {
+            onExtracted.accept(label, payslip);
+        }
+    }
+
+    /**
+     * Picks the failure that caused the cancellation rather than the cancellation of the sibling extraction.
+     */
+    @SafeVarargs
+    private static IOException rootFailure(ExecutionException executionException, CancellableTask<ExtractedPayslipDataDTO>... extractions) {
+        Throwable cause = Arrays.stream(extractions)
+                .map(CancellableTask::result)
+                .filter(result -> result.isCompletedExceptionally() && !result.isCancelled())
+                .map(CompletableFuture::exceptionNow)
+                .findFirst()
+                .orElse(executionException.getCause());
 
-        return TextAnswerDTO.builder().answer(answer).build();
+        if (cause instanceof IOException ioException) return ioException;
+        if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+        if (cause instanceof Error error) throw error;
+        return new IOException("Payslip extraction failed", cause);
+    }
+
+    private static String text(ChatResponse chatResponse) {
+        return Optional.ofNullable(chatResponse)
+                .map(ChatResponse::getResult)
+                .map(result -> result.getOutput().getText())
+                .orElse("");
+    }
+
+    private static String employerNumber(ExtractedPayslipDataDTO dto) {
+        return Optional.ofNullable(dto)
+                .map(ExtractedPayslipDataDTO::employer)
+                .map(ExtractedPayslipDataDTO.EmployerInfo::employerNumber)
+                .orElse("");
     }
 
     private String monthKey(ExtractedPayslipDataDTO dto) {
@@ -62,6 +282,15 @@ public class PayslipCompareService {
                 .orElse("");
     }
 
+    /**
+     * One progress event of a streamed comparison; {@code name} is one of the {@code EVENT_*} constants.
+     */
+    public record StreamEvent(String name, Object data) {
+    }
+
+    private record ExtractedPayslips(ExtractedPayslipDataDTO previous, ExtractedPayslipDataDTO current) {
+    }
+
     static final class JsonView {
         static String from(ExtractedPayslipDataDTO dto) {
             if (dto == null) return "{}";
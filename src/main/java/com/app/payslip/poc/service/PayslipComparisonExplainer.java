@@ -0,0 +1,85 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.model.PayslipComparisonResultDTO;
+import com.app.payslip.poc.model.PayslipComparisonResultDTO.BenefitChangeDTO;
+import com.app.payslip.poc.model.PayslipComparisonResultDTO.FieldChangeDTO;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+/**
+ * Renders a comparison as a short plain-text explanation without involving the model: the net pay change first,
+ * then every other field change, then the benefit lines that were added, removed or changed.
+ */
+@Component
+public class PayslipComparisonExplainer {
+
+    private static final String NET_FIELD = "net";
+
+    public String explain(PayslipComparisonResultDTO comparison) {
+        String period = "%s and %s".formatted(orUnknown(comparison.previousMonthKey()), orUnknown(comparison.currentMonthKey()));
+        if (comparison.fieldChanges().isEmpty() && comparison.benefitChanges().isEmpty()) {
+            return "No differences were found between " + period + ".";
+        }
+
+        StringJoiner explanation = new StringJoiner("\n");
+        Optional<FieldChangeDTO> netChange = comparison.fieldChanges().stream()
+                .filter(change -> NET_FIELD.equals(change.fieldName()))
+                .findFirst();
+        explanation.add(netChange
+                .map(change -> "Net pay went from %s to %s (%s) between %s.".formatted(
+                        amount(change.previousValue()), amount(change.currentValue()), signed(change.delta()), period))
+                .orElse("Net pay did not change between " + period + "."));
+
+        if (comparison.fieldChanges().stream().anyMatch(change -> !NET_FIELD.equals(change.fieldName()))) {
+            explanation.add("");
+            explanation.add("Other changes:");
+            comparison.fieldChanges().stream()
+                    .filter(change -> !NET_FIELD.equals(change.fieldName()))
+                    .forEach(change -> explanation.add("- %s: %s -> %s (%s)".formatted(
+                            change.description(), amount(change.previousValue()), amount(change.currentValue()), signed(change.delta()))));
+        }
+
+        if (!comparison.benefitChanges().isEmpty()) {
+            explanation.add("");
+            explanation.add("Benefit lines:");
+            comparison.benefitChanges().forEach(change -> explanation.add("- " + describe(change)));
+        }
+        return explanation.toString();
+    }
+
+    private String describe(BenefitChangeDTO change) {
+        String label = Optional.ofNullable(change.label()).filter(value -> !value.isBlank()).orElse(orUnknown(change.code()));
+        return switch (change.changeType()) {
+            case "ADDED" -> "%s was added (%s)".formatted(label, amount(change.currentAmount()));
+            case "REMOVED" -> "%s was removed (was %s)".formatted(label, amount(change.previousAmount()));
+            default -> "%s changed: %s -> %s%s%s".formatted(
+                    label,
+                    amount(change.previousAmount()),
+                    amount(change.currentAmount()),
+                    Boolean.TRUE.equals(change.previousTaxable()) != Boolean.TRUE.equals(change.currentTaxable())
+                            ? Boolean.TRUE.equals(change.currentTaxable()) ? ", now taxable" : ", no longer taxable"
+                            : "",
+                    change.changeType().contains("DIRECTION_CHANGED")
+                            ? ", direction %s -> %s".formatted(orUnknown(change.previousDirection()), orUnknown(change.currentDirection()))
+                            : ""
+            );
+        };
+    }
+
+    private static String amount(BigDecimal value) {
+        return value == null ? "0.00" : value.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static String signed(BigDecimal delta) {
+        if (delta == null) return "0.00";
+        return (delta.signum() > 0 ? "+" : "") + amount(delta);
+    }
+
+    private static String orUnknown(String value) {
+        return value == null || value.isBlank() ? "unknown" : value;
+    }
+}
@@ -0,0 +1,267 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.config.ExtractionCacheProperties;
+import com.app.payslip.poc.config.PromptConfigProperties;
+import com.app.payslip.poc.config.RenderingProperties;
+import com.app.payslip.poc.config.TextLayerProperties;
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
+import com.app.payslip.poc.util.FileUtil.PageMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static com.app.payslip.poc.util.HashUtil.shortSha256;
+
+/**
+ * Two-tier cache of extraction results keyed on the SHA-256 of the uploaded file.
+ * <p>
+ * The key also carries a fingerprint of everything else that shapes the result: the extraction prompts, the chat
+ * model, the text-layer settings and the render options of the requested page mode. Changing any of them in
+ * {@code application.yml}, or asking for another page mode, never serves a result produced under other settings.
+ * <p>
+ * Disk entries are written to a temporary file and moved into place. Temporary files left behind by a crash in
+ * between are deleted on startup, since they are neither counted towards the size limit nor ever evicted.
+ */
+@Slf4j
+@Component
+public class PayslipExtractionCache {
+
+    private static final String ENTRY_SUFFIX = ".json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    /**
+     * Temporary files younger than this may belong to a write still in progress by another instance sharing the
+     * directory, so they are left alone.
+     */
+    private static final Duration STALE_TEMP_AGE = Duration.ofMinutes(1);
+
+    private final ExtractionCacheProperties properties;
+    private final PromptConfigProperties promptConfig;
+    private final RenderingProperties renderingProperties;
+    private final TextLayerProperties textLayerProperties;
+    private final ObjectMapper objectMapper;
+    private final String chatModelName;
+
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Map<PageMode, String> settingsFingerprints = new EnumMap<>(PageMode.class);
+    private Cache<String, ExtractedPayslipDataDTO> memoryTier;
+    private Path diskDirectory;
+
+    public PayslipExtractionCache(
+            ExtractionCacheProperties properties,
+            PromptConfigProperties promptConfig,
+            RenderingProperties renderingProperties,
+            TextLayerProperties textLayerProperties,
+            ObjectMapper objectMapper,
+            @Value("${spring.ai.openai.chat.options.model:}") String chatModelName
+    ) {
+        this.properties = properties;
+        this.promptConfig = promptConfig;
+        this.renderingProperties = renderingProperties;
+        this.textLayerProperties = textLayerProperties;
+        this.objectMapper = objectMapper;
+        this.chatModelName = chatModelName;
+    }
+
+    @PostConstruct
+    void initialize() throws IOException {
+        memoryTier = Caffeine.newBuilder()
+                .maximumSize(properties.getMemoryMaxEntries())
+                .build();
+        for (PageMode pageMode : PageMode.values()) {
+            settingsFingerprints.put(pageMode, shortSha256(String.join("\n",
+                    promptConfig.getPayslip().getSystemExtraction(),
+                    promptConfig.getPayslip().getUserExtraction(),
+                    promptConfig.getPayslip().getUserExtractionText(),
+                    chatModelName,
+                    String.valueOf(textLayerProperties.isEnabled()),
+                    textLayerProperties.toTextLayerOptions(renderingProperties.getMaxPages()).toString(),
+                    renderingProperties.toRenderOptions(pageMode).toString()
+            )));
+        }
+
+        if (properties.isEnabled() && properties.isDiskEnabled()) {
+            diskDirectory = Files.createDirectories(Path.of(properties.getDiskDirectory()));
+            deleteStaleTempFiles();
+            diskBytes.set(currentDiskUsage());
+            log.info("Extraction cache disk tier at '{}' holds {} bytes", diskDirectory.toAbsolutePath(), diskBytes.get());
+        }
+    }
+
+    /**
+     * @param pageMode the page mode of the request; {@code null} means {@code payslip.rendering.page-mode}
+     */
+    public Optional<ExtractedPayslipDataDTO> get(String fileSha256, PageMode pageMode) {
+        if (!properties.isEnabled() || fileSha256 == null || fileSha256.isBlank()) {
+            return Optional.empty();
+        }
+
+        String key = cacheKey(fileSha256, pageMode);
+        ExtractedPayslipDataDTO cached = memoryTier.getIfPresent(key);
+        if (cached != null) {
+            log.debug("Extraction cache memory hit for {}", key);
+            return Optional.of(cached);
+        }
+
+        Optional<ExtractedPayslipDataDTO> fromDisk = readFromDisk(key);
+        fromDisk.ifPresent(payslipData -> {
+            log.debug("Extraction cache disk hit for {}", key);
+            memoryTier.put(key, payslipData);
+        });
+        return fromDisk;
+    }
+
+    public void put(String fileSha256, PageMode pageMode, ExtractedPayslipDataDTO payslipData) {
+        if (!properties.isEnabled() || fileSha256 == null || fileSha256.isBlank() || payslipData == null) {
+            return;
+        }
+
+        String key = cacheKey(fileSha256, pageMode);
+        memoryTier.put(key, payslipData);
+        writeToDisk(key, payslipData);
+    }
+
+    private String cacheKey(String fileSha256, PageMode pageMode) {
+        PageMode effectivePageMode = Optional.ofNullable(pageMode).orElse(renderingProperties.getPageMode());
+        return fileSha256 + "-" + settingsFingerprints.get(effectivePageMode);
+    }
+
+    private Optional<ExtractedPayslipDataDTO> readFromDisk(String key) {
+        if (diskDirectory == null) return Optional.empty();
+
+        Path entry = diskDirectory.resolve(key + ENTRY_SUFFIX);
+        if (!Files.isRegularFile(entry)) return Optional.empty();
+
+        try {
+            ExtractedPayslipDataDTO payslipData = objectMapper.readValue(entry.toFile(), ExtractedPayslipDataDTO.class);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(payslipData);
+        } catch (IOException exception) {
+            log.warn("Discarding unreadable extraction cache entry '{}': {}", entry, exception.getMessage());
+            deleteEntry(entry);
+            return Optional.empty();
+        }
+    }
+
+    private void writeToDisk(String key, ExtractedPayslipDataDTO payslipData) {
+        if (diskDirectory == null) return;
+
+        Path entry = diskDirectory.resolve(key + ENTRY_SUFFIX);
+        Path tempEntry = null;
+        try {
+            tempEntry = Files.createTempFile(diskDirectory, key, TEMP_SUFFIX);
+            Files.write(tempEntry, objectMapper.writeValueAsBytes(payslipData));
+            long previousSize = Files.exists(entry) ? Files.size(entry) : 0L;
+            Files.move(tempEntry, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskBytes.addAndGet(Files.size(entry) - previousSize);
+        } catch (IOException exception) {
+            log.warn("Failed to write extraction cache entry '{}': {}", entry, exception.getMessage());
+            if (tempEntry != null) deleteEntry(tempEntry);
+            return;
+        }
+
+        if (diskBytes.get() > properties.getDiskMaxBytes()) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Only one writer evicts at a time; the others skip, since the running eviction frees space for them too. A lock
+     * rather than {@code synchronized}, so a virtual thread waiting on disk I/O here does not pin its carrier.
+     */
+    private void evictLeastRecentlyUsed() {
+        if (!evictionLock.tryLock()) return;
+        try {
+            evictUnderLock();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void evictUnderLock() {
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(diskDirectory)) {
+            entries = files
+                    .filter(path -> path.getFileName().toString().endsWith(ENTRY_SUFFIX))
+                    .sorted(Comparator.comparing(PayslipExtractionCache::lastModified))
+                    .toList();
+        } catch (IOException exception) {
+            log.warn("Failed to list extraction cache directory '{}': {}", diskDirectory, exception.getMessage());
+            return;
+        }
+
+        for (Path entry : entries) {
+            if (diskBytes.get() <= properties.getDiskMaxBytes()) break;
+            deleteEntry(entry);
+        }
+    }
+
+    private void deleteEntry(Path entry) {
+        try {
+            long size = Files.exists(entry) ? Files.size(entry) : 0L;
+            if (Files.deleteIfExists(entry) && entry.getFileName().toString().endsWith(ENTRY_SUFFIX)) {
+                diskBytes.addAndGet(-size);
+            }
+        } catch (IOException exception) {
+            log.warn("Failed to delete extraction cache entry '{}': {}", entry, exception.getMessage());
+        }
+    }
+
+    private void deleteStaleTempFiles() throws IOException {
+        FileTime staleBefore = FileTime.from(Instant.now().minus(STALE_TEMP_AGE));
+        List<Path> staleTempFiles;
+        try (Stream<Path> files = Files.list(diskDirectory)) {
+            staleTempFiles = files
+                    .filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .filter(path -> lastModified(path).compareTo(staleBefore) < 0)
+                    .toList();
+        }
+        staleTempFiles.forEach(this::deleteEntry);
+        if (!staleTempFiles.isEmpty()) {
+            log.info("Deleted {} temporary files left in extraction cache directory '{}'", staleTempFiles.size(), diskDirectory);
+        }
+    }
+
+    private long currentDiskUsage() throws IOException {
+        try (Stream<Path> files = Files.list(diskDirectory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().endsWith(ENTRY_SUFFIX))
+                    .mapToLong(PayslipExtractionCache::sizeOf)
+                    .sum();
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException exception) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException exception) {
+            return 0L;
+        }
+    }
+}
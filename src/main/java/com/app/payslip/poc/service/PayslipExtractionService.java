@@ -1,19 +1,33 @@
 package com.app.payslip.poc.service;
 
 import com.app.payslip.poc.config.PromptConfigProperties;
+import com.app.payslip.poc.config.RenderingProperties;
+import com.app.payslip.poc.config.TextLayerProperties;
+import com.app.payslip.poc.factstore.PayslipFactStore;
 import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
+import com.app.payslip.poc.util.CancellableTask;
+import com.app.payslip.poc.util.FileUtil.PageMode;
+import com.app.payslip.poc.util.ImagePreprocessor;
+import com.app.payslip.poc.util.ImagePreprocessor.EncodedImage;
+import com.app.payslip.poc.util.SpooledMultipartFile;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ResponseEntity;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.content.Media;
 import org.springframework.stereotype.Service;
-import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
-import static com.app.payslip.poc.util.FileUtil.convertFileToImageBytes;
+import static com.app.payslip.poc.util.FileUtil.convertFileToImages;
+import static com.app.payslip.poc.util.FileUtil.extractPdfTextLayer;
+import static com.app.payslip.poc.util.HashUtil.sha256Hex;
 
 @Slf4j
 @Service
@@ -22,41 +36,139 @@ public class PayslipExtractionService {
 
     private final ChatClient chat;
     private final PromptConfigProperties promptConfig;
+    private final RenderingProperties renderingProperties;
+    private final TextLayerProperties textLayerProperties;
     private final PayslipIndexService payslipIndexService;
+    private final PayslipExtractionCache extractionCache;
+    private final PayslipFactStore factStore;
+    private final PayslipMetrics metrics;
+    private final ExecutorService virtualThreadExecutor;
 
-    public ExtractedPayslipDataDTO scrapeAndIndexPayslip(MultipartFile file) throws IOException {
-        byte[] imageBytes = convertFileToImageBytes(file);
+    /**
+     * @param endpoint the endpoint the upload came in on ({@code PayslipMetrics.ENDPOINT_*}), for the token ledger
+     */
+    public ExtractedPayslipDataDTO scrapeAndIndexPayslip(MultipartFile file, String endpoint) throws IOException {
+        return scrapeAndIndexPayslip(file, null, endpoint);
+    }
+
+    /**
+     * @param pageMode how multi-page PDFs are sent to the model; {@code null} uses {@code payslip.rendering.page-mode}
+     * @param endpoint the endpoint the upload came in on ({@code PayslipMetrics.ENDPOINT_*}), for the token ledger
+     */
+    public ExtractedPayslipDataDTO scrapeAndIndexPayslip(MultipartFile file, PageMode pageMode, String endpoint) throws IOException {
+        byte[] originalFileBytes = file.getBytes();
+        String fileSha256 = sha256Hex(originalFileBytes);
 
-        ExtractedPayslipDataDTO extractedPayslipData = executePrompt(imageBytes);
+        ExtractedPayslipDataDTO extractedPayslipData = extractionCache.get(fileSha256, pageMode).orElse(null);
+        if (extractedPayslipData != null) {
+            log.info("Reusing cached extraction for file '{}' (sha256 {})", file.getOriginalFilename(), fileSha256);
+        } else {
+            extractedPayslipData = extract(file, pageMode, endpoint);
+            extractionCache.put(fileSha256, pageMode, extractedPayslipData);
+        }
 
-        indexPayslipData(file, extractedPayslipData);
+        indexPayslipData(file.getOriginalFilename(), originalFileBytes, extractedPayslipData);
+        recordFacts(file.getOriginalFilename(), fileSha256, extractedPayslipData);
 
         return extractedPayslipData;
     }
 
-    private ExtractedPayslipDataDTO executePrompt(byte[] imageBytes) {
-        return chat.prompt()
+    /**
+     * Runs {@link #scrapeAndIndexPayslip(MultipartFile, PageMode, String)} on a virtual thread, so the calling request
+     * thread is released while the model and the vector store are waited on. The upload is spooled to a temporary
+     * file first because it is only guaranteed to exist while the request is being handled; the file is deleted once
+     * the task finishes or is cancelled.
+     */
+    public CancellableTask<ExtractedPayslipDataDTO> scrapeAndIndexPayslipAsync(MultipartFile file, PageMode pageMode, String endpoint) throws IOException {
+        SpooledMultipartFile fileCopy = SpooledMultipartFile.spool(file);
+        CancellableTask<ExtractedPayslipDataDTO> task = CancellableTask.submit(virtualThreadExecutor, () -> scrapeAndIndexPayslip(fileCopy, pageMode, endpoint));
+        task.result().whenComplete((payslipData, failure) -> fileCopy.delete());
+        return task;
+    }
+
+    /**
+     * Digitally generated PDFs are sent as their text layer, which is far smaller than rendered pages; anything else
+     * (scans, images, PDFs with garbled fonts) goes through image rendering.
+     */
+    private ExtractedPayslipDataDTO extract(MultipartFile file, PageMode pageMode, String endpoint) throws IOException {
+        if (textLayerProperties.isEnabled()) {
+            Timer.Sample textLayerSample = metrics.startStage();
+            Optional<String> textLayer = extractPdfTextLayer(file, textLayerProperties.toTextLayerOptions(renderingProperties.getMaxPages()));
+            metrics.stopStage(textLayerSample, PayslipMetrics.STAGE_TEXT_LAYER);
+            if (textLayer.isPresent()) {
+                log.info("Extracting file '{}' from its PDF text layer ({} characters)", file.getOriginalFilename(), textLayer.get().length());
+                metrics.recordTextLayer(textLayer.get().length());
+                return executeTextPrompt(textLayer.get(), endpoint);
+            }
+        }
+
+        Timer.Sample renderSample = metrics.startStage();
+        List<EncodedImage> pageImages = convertFileToImages(file, renderingProperties.toRenderOptions(pageMode));
+        metrics.stopStage(renderSample, PayslipMetrics.STAGE_RENDER);
+        metrics.recordImages(pageImages);
+        return executePrompt(pageImages, endpoint);
+    }
+
+    private ExtractedPayslipDataDTO executeTextPrompt(String textLayer, String endpoint) {
+        Timer.Sample sample = metrics.startStage();
+        ResponseEntity<ChatResponse, ExtractedPayslipDataDTO> response = chat.prompt()
+                .system(promptConfig.getPayslip().getSystemExtraction())
+                .user(promptConfig.getPayslip().getUserExtractionText().formatted(textLayer))
+                .advisors(TokenUsageAdvisor.usage(endpoint, PayslipMetrics.OPERATION_EXTRACTION, null, 0))
+                .call()
+                .responseEntity(ExtractedPayslipDataDTO.class);
+        metrics.stopStage(sample, PayslipMetrics.STAGE_EXTRACTION_LLM);
+        return response.entity();
+    }
+
+    private ExtractedPayslipDataDTO executePrompt(List<EncodedImage> pageImages, String endpoint) {
+        Media[] pageMedia = pageImages.stream()
+                .map(pageImage -> Media.builder()
+                        .mimeType(pageImage.mimeType())
+                        .data(pageImage.data())
+                        .build())
+                .toArray(Media[]::new);
+
+        int imageTokens = pageImages.stream()
+                .mapToInt(pageImage -> ImagePreprocessor.estimateVisionTokens(pageImage.width(), pageImage.height()))
+                .sum();
+
+        Timer.Sample sample = metrics.startStage();
+        ResponseEntity<ChatResponse, ExtractedPayslipDataDTO> response = chat.prompt()
                 .system(promptConfig.getPayslip().getSystemExtraction())
                 .user(userSpec -> userSpec
                         .text(promptConfig.getPayslip().getUserExtraction())
-                        .media(Media.builder()
-                                .mimeType(MimeTypeUtils.IMAGE_PNG)
-                                .data(imageBytes)
-                                .build()))
+                        .media(pageMedia))
+                .advisors(TokenUsageAdvisor.usage(endpoint, PayslipMetrics.OPERATION_EXTRACTION, null, imageTokens))
                 .call()
-                .entity(ExtractedPayslipDataDTO.class);
+                .responseEntity(ExtractedPayslipDataDTO.class);
+        metrics.stopStage(sample, PayslipMetrics.STAGE_EXTRACTION_LLM);
+        return response.entity();
     }
 
-    private void indexPayslipData(MultipartFile file, ExtractedPayslipDataDTO extractedPayslipData) {
+    private void indexPayslipData(String sourceName, byte[] originalFileBytes, ExtractedPayslipDataDTO extractedPayslipData) {
+        Timer.Sample sample = metrics.startStage();
         try {
-            String sourceName = file.getOriginalFilename();
-            byte[] originalFileBytes = file.getBytes();
             List<String> documentIds = payslipIndexService.index(extractedPayslipData, sourceName, originalFileBytes);
             log.info("Successfully indexed payslip from file '{}'. Created {} document entries with IDs: {}",
                     sourceName, documentIds.size(), documentIds);
         } catch (Exception indexingException) {
             log.error("Failed to index payslip from file '{}': {}",
-                    file.getOriginalFilename(), indexingException.getMessage(), indexingException);
+                    sourceName, indexingException.getMessage(), indexingException);
+        } finally {
+            metrics.stopStage(sample, PayslipMetrics.STAGE_INDEX);
+        }
+    }
+
+    private void recordFacts(String sourceName, String fileSha256, ExtractedPayslipDataDTO extractedPayslipData) {
+        Timer.Sample sample = metrics.startStage();
+        try {
+            factStore.record(fileSha256, extractedPayslipData);
+        } catch (Exception factStoreException) {
+            log.error("Failed to record facts for payslip from file '{}': {}",
+                    sourceName, factStoreException.getMessage(), factStoreException);
+        } finally {
+            metrics.stopStage(sample, PayslipMetrics.STAGE_FACT_STORE);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,52 +1,169 @@
 package com.app.payslip.poc.service;
 
+import com.app.payslip.poc.config.IndexWriterProperties;
 import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
 import com.app.payslip.poc.model.ExtractedPayslipDataDTO.*;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.app.payslip.poc.util.HashUtil.sha256Hex;
+import static com.app.payslip.poc.util.HashUtil.shortSha256;
+
+/**
+ * Indexes a payslip as one parent document plus one child document per section and benefit line.
+ * <p>
+ * The parent ({@code section=payslip}, id = payslip id) carries the full metadata of the payslip and a short summary
+ * text. Children carry only what is needed to filter, cite and join back to the parent: {@link #CHILD_METADATA_KEYS},
+ * their section (plus {@code benefit.*} for benefit lines), their own {@code docId} and the parent's
+ * {@code payslipId}. Repeating the ~30 payslip-level keys (addresses included) on every section multiplied the
+ * stored and transferred metadata by the number of sections.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PayslipIndexService {
 
+    public static final String SECTION_PAYSLIP = "payslip";
+    public static final String METADATA_PAYSLIP_ID = "payslipId";
+
     private static final int MAX_ADDRESS_DISPLAY_LENGTH = 80;
 
-    private final VectorStore vectorStore;
+    /**
+     * Payslip-level keys copied onto every section: the identifiers the ask, similarity and timeline filters use, and
+     * the source file name shown in citations.
+     */
+    private static final List<String> CHILD_METADATA_KEYS = List.of(
+            "source",
+            "personal.name",
+            "personal.nationalId",
+            "employer.number",
+            "employment.employeeNumber",
+            "period.monthKey"
+    );
+
+    private final PayslipIndexWriter indexWriter;
+    private final IndexWriterProperties indexWriterProperties;
+    private final DocumentLookup documentLookup;
+    private final PayslipMetrics metrics;
 
     public List<String> index(ExtractedPayslipDataDTO payslipData, String sourceName, byte[] originalBytes) {
+        List<Document> identifiedDocuments = buildDocuments(payslipData, sourceName, originalBytes);
+        List<String> documentIds = identifiedDocuments.stream().map(Document::getId).toList();
+
+        Set<String> alreadyIndexed = documentLookup.existingIds(documentIds);
+        List<Document> newDocuments = identifiedDocuments.stream()
+                .filter(document -> !alreadyIndexed.contains(document.getId()))
+                .toList();
+        metrics.recordIndexedDocuments("built", identifiedDocuments.size());
+        metrics.recordIndexedDocuments("new", newDocuments.size());
+
+        if (newDocuments.isEmpty()) {
+            log.info("Payslip '{}' is already indexed, skipping {} documents", sourceName, documentIds.size());
+        } else {
+            awaitWrite(indexWriter.submit(newDocuments));
+        }
+        return documentIds;
+    }
+
+    /**
+     * Builds the parent and section documents of a payslip with their final ids; no I/O, so it is benchmarked on its
+     * own in {@code src/jmh}.
+     */
+    List<Document> buildDocuments(ExtractedPayslipDataDTO payslipData, String sourceName, byte[] originalBytes) {
         Map<String, Object> baseMetadata = baseMetadata(payslipData, sourceName, originalBytes);
+        String payslipId = composeBaseId(baseMetadata);
+        Map<String, Object> childMetadata = childMetadata(baseMetadata, payslipId);
 
         List<Document> documents = new ArrayList<>();
-        addIfNotBlank(documents, personalText(payslipData), with(baseMetadata, Map.of("section", "personal")));
-        addIfNotBlank(documents, employerText(payslipData), with(baseMetadata, Map.of("section", "employer")));
-        addIfNotBlank(documents, employmentText(payslipData), with(baseMetadata, Map.of("section", "employment")));
-        addIfNotBlank(documents, periodText(payslipData), with(baseMetadata, Map.of("section", "period")));
-        addIfNotBlank(documents, financialText(payslipData), with(baseMetadata, Map.of("section", "financial")));
-        addIfNotBlank(documents, extrasHeaderText(payslipData), with(baseMetadata, Map.of("section", "extras")));
-        benefitDocuments(payslipData).forEach(documentPart -> documents.add(new Document(documentPart.text, with(baseMetadata, documentPart.metadata))));
-
-        String baseId = composeBaseId(baseMetadata);
+        addIfNotBlank(documents, personalText(payslipData), with(childMetadata, Map.of("section", "personal")));
+        addIfNotBlank(documents, employerText(payslipData), with(childMetadata, Map.of("section", "employer")));
+        addIfNotBlank(documents, employmentText(payslipData), with(childMetadata, Map.of("section", "employment")));
+        addIfNotBlank(documents, periodText(payslipData), with(childMetadata, Map.of("section", "period")));
+        addIfNotBlank(documents, financialText(payslipData), with(childMetadata, Map.of("section", "financial")));
+        addIfNotBlank(documents, extrasHeaderText(payslipData), with(childMetadata, Map.of("section", "extras")));
+        benefitDocuments(payslipData).forEach(documentPart -> documents.add(new Document(documentPart.text, with(childMetadata, documentPart.metadata))));
+
+        List<Document> identifiedDocuments = new ArrayList<>();
+        identifiedDocuments.add(parentDocument(payslipData, baseMetadata, payslipId));
+        identifiedDocuments.addAll(withDeterministicIds(documents, payslipId));
+        return identifiedDocuments;
+    }
+
+    /**
+     * Waits for the batch holding this payslip to be written, so callers (the ask flow searches right after indexing)
+     * see its documents; concurrent extractions waiting here are what the writer coalesces into one batch.
+     */
+    private void awaitWrite(CompletableFuture<Void> write) {
+        try {
+            write.get(indexWriterProperties.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the payslip to be indexed", interruptedException);
+        } catch (ExecutionException executionException) {
+            throw new IllegalStateException("Failed to index payslip: " + executionException.getCause().getMessage(), executionException.getCause());
+        } catch (TimeoutException timeoutException) {
+            throw new IllegalStateException("Payslip was not indexed within " + indexWriterProperties.getWriteTimeout(), timeoutException);
+        }
+    }
+
+    /**
+     * Uses the docId as the vector store id, so re-indexing the same payslip overwrites instead of duplicating.
+     */
+    private static List<Document> withDeterministicIds(List<Document> documents, String baseId) {
+        List<Document> identifiedDocuments = new ArrayList<>(documents.size());
         int index = 0;
         for (Document document : documents) {
             String hash = shortSha256(document.getText());
-            document.getMetadata().put(
-                    "docId",
-                    baseId + ":" + document.getMetadata().getOrDefault("section", "section") + ":" + hash + ":" + (index++)
-            );
+            String docId = baseId + ":" + document.getMetadata().getOrDefault("section", "section") + ":" + hash + ":" + (index++);
+            document.getMetadata().put("docId", docId);
+            identifiedDocuments.add(new Document(docId, document.getText(), document.getMetadata()));
         }
+        return identifiedDocuments;
+    }
+
+    private static Document parentDocument(ExtractedPayslipDataDTO payslipData, Map<String, Object> baseMetadata, String payslipId) {
+        Map<String, Object> metadata = with(baseMetadata, Map.of("section", SECTION_PAYSLIP));
+        metadata.put("docId", payslipId);
+        metadata.put(METADATA_PAYSLIP_ID, payslipId);
+        return new Document(payslipId, payslipSummaryText(payslipData), metadata);
+    }
+
+    private static String payslipSummaryText(ExtractedPayslipDataDTO payslipData) {
+        return """
+                PAYSLIP
+                Employee: %s
+                Employer: %s
+                Period: %s
+                Gross: %s
+                Net: %s
+                """.formatted(
+                Optional.ofNullable(payslipData.personal()).map(PersonalInfo::name).orElse(""),
+                Optional.ofNullable(payslipData.employer()).map(EmployerInfo::name).orElse(""),
+                Optional.ofNullable(payslipData.period()).map(PeriodInfo::periodStart).map(PayslipIndexService::monthKey).orElse(""),
+                moneyString(Optional.ofNullable(payslipData.financial()).map(FinancialInfo::gross).orElse(null)),
+                moneyString(Optional.ofNullable(payslipData.financial()).map(FinancialInfo::net).orElse(null))
+        );
+    }
 
-        vectorStore.add(documents);
-        return documents.stream().map(document -> String.valueOf(document.getMetadata().get("docId"))).toList();
+    private static Map<String, Object> childMetadata(Map<String, Object> baseMetadata, String payslipId) {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        for (String key : CHILD_METADATA_KEYS) {
+            Object value = baseMetadata.get(key);
+            if (value != null) metadata.put(key, value);
+        }
+        metadata.put(METADATA_PAYSLIP_ID, payslipId);
+        return metadata;
     }
 
     private String personalText(ExtractedPayslipDataDTO payslipData) {
@@ -303,32 +420,6 @@ public class PayslipIndexService {
         return fullAddress.length() > PayslipIndexService.MAX_ADDRESS_DISPLAY_LENGTH ? fullAddress.substring(0, PayslipIndexService.MAX_ADDRESS_DISPLAY_LENGTH) + "…" : fullAddress;
     }
 
-    private static String shortSha256(String text) {
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-            byte[] digest = messageDigest.digest(Optional.ofNullable(text).orElse("").getBytes(StandardCharsets.UTF_8));
-            return toHex(digest).substring(0, 8);
-        } catch (NoSuchAlgorithmException exception) {
-            // SHA-256 should always be available, but fallback just in case
-            return UUID.randomUUID().toString().substring(0, 8);
-        }
-    }
-
-    private static String sha256Hex(byte[] bytes) {
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-            return toHex(messageDigest.digest(bytes));
-        } catch (NoSuchAlgorithmException exception) {
-            return "";
-        }
-    }
-
-    private static String toHex(byte[] data) {
-        StringBuilder stringBuilder = new StringBuilder(data.length * 2);
-        for (byte byteValue : data) stringBuilder.append(String.format("%02x", byteValue));
-        return stringBuilder.toString();
-    }
-
     private record DocPart(String text, Map<String, Object> metadata) {
     }
 }
\ No newline at end of file
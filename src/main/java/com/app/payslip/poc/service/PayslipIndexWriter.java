@@ -0,0 +1,222 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.config.IndexWriterProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind pipeline in front of {@link VectorStore#add}: documents submitted by concurrent extractions are
+ * coalesced into batches of at most {@code max-batch-documents}, so a bulk load costs one embedding request and one
+ * bulk write per batch instead of per payslip. A payslip arriving on an idle writer is written at once; only when
+ * others are already queued does the writer wait up to {@code max-batch-delay} for the batch to fill.
+ * <p>
+ * The queue is bounded; when it is full, {@link #submit} blocks for up to {@code enqueue-timeout} and then rejects,
+ * which pushes back on the extractions feeding it. Failed batches are retried with a linear backoff and then split
+ * per payslip, and on shutdown everything still queued is written before the writer thread exits. Whatever is queued
+ * after that, or when the writer thread ends unexpectedly, is rejected rather than left waiting.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PayslipIndexWriter {
+
+    private final VectorStore vectorStore;
+    private final IndexWriterProperties properties;
+    private final PayslipMetrics metrics;
+
+    private BlockingQueue<PendingWrite> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) return;
+
+        queue = new LinkedBlockingQueue<>(properties.getQueueCapacity());
+        running = true;
+        writerThread = Thread.ofPlatform()
+                .name("payslip-index-writer")
+                .daemon()
+                .start(this::writeLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writerThread == null) return;
+
+        running = false;
+        writerThread.join(properties.getShutdownTimeout().toMillis());
+        if (writerThread.isAlive()) {
+            log.warn("Index writer did not flush within {}, {} payslips were not indexed",
+                    properties.getShutdownTimeout(), queue.size());
+        }
+    }
+
+    /**
+     * Queues the documents of one payslip; the future completes once they are in the vector store.
+     */
+    public CompletableFuture<Void> submit(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!properties.isEnabled()) {
+            vectorStore.add(documents);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!running) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Index writer is shut down"));
+        }
+
+        PendingWrite pendingWrite = new PendingWrite(documents, new CompletableFuture<>());
+        try {
+            if (!queue.offer(pendingWrite, properties.getEnqueueTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Index queue stayed full for " + properties.getEnqueueTimeout()));
+            }
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(interruptedException);
+        }
+        // The writer may have stopped and drained the queue between the running check and the offer; a payslip it
+        // did not take any more is rejected here, one it did take is completed by the writer.
+        if (!running && queue.remove(pendingWrite)) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Index writer is shut down"));
+        }
+        return pendingWrite.completion();
+    }
+
+    private void writeLoop() {
+        try {
+            while (running || !queue.isEmpty()) {
+                List<PendingWrite> batch = nextBatch();
+                if (batch.isEmpty()) continue;
+                try {
+                    write(batch);
+                } catch (Throwable failure) {
+                    log.error("Indexing batch of {} payslips failed", batch.size(), failure);
+                    batch.forEach(pendingWrite -> pendingWrite.completion().completeExceptionally(failure));
+                }
+            }
+            log.info("Index writer stopped");
+        } catch (InterruptedException interruptedException) {
+            log.warn("Index writer interrupted, {} payslips were not indexed", queue.size());
+        } finally {
+            running = false;
+            rejectQueued();
+        }
+    }
+
+    private void rejectQueued() {
+        List<PendingWrite> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(pendingWrite -> pendingWrite.completion()
+                .completeExceptionally(new RejectedExecutionException("Index writer is shut down")));
+    }
+
+    /**
+     * Waits for the first payslip and takes whatever is already queued behind it without waiting, so a lone payslip
+     * is written right away. Only when other payslips were already queued - concurrent extractions, or a backlog built
+     * up while the previous batch was written - does it keep adding until the batch is full or the delay since the
+     * first one has passed. While shutting down, it only takes what is already queued. The writer thread is never
+     * interrupted, so a batch that is being written always finishes.
+     */
+    private List<PendingWrite> nextBatch() throws InterruptedException {
+        List<PendingWrite> batch = new ArrayList<>();
+        PendingWrite first = running ? queue.poll(properties.getMaxBatchDelay().toMillis(), TimeUnit.MILLISECONDS) : queue.poll();
+        if (first == null) return batch;
+
+        long deadline = System.nanoTime() + properties.getMaxBatchDelay().toNanos();
+        batch.add(first);
+        int documentCount = first.documents().size();
+        while (documentCount < properties.getMaxBatchDocuments()) {
+            PendingWrite next = queue.poll();
+            if (next == null) break;
+            batch.add(next);
+            documentCount += next.documents().size();
+        }
+
+        boolean busy = batch.size() > 1;
+        while (busy && running && documentCount < properties.getMaxBatchDocuments()) {
+            long remaining = deadline - System.nanoTime();
+            PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) break;
+            batch.add(next);
+            documentCount += next.documents().size();
+        }
+        return batch;
+    }
+
+    /**
+     * Writes the batch with retries. If its last attempt fails and it holds several payslips, each one is written on
+     * its own once, so a payslip the vector store keeps rejecting only fails its own request.
+     */
+    private void write(List<PendingWrite> batch) {
+        List<Document> documents = batch.stream().flatMap(pendingWrite -> pendingWrite.documents().stream()).toList();
+
+        RuntimeException lastFailure = null;
+        for (int attempt = 1; attempt <= properties.getMaxAttempts(); attempt++) {
+            try {
+                add(documents, batch.size());
+                batch.forEach(pendingWrite -> pendingWrite.completion().complete(null));
+                return;
+            } catch (RuntimeException exception) {
+                lastFailure = exception;
+                log.warn("Indexing batch of {} documents failed (attempt {}/{}): {}",
+                        documents.size(), attempt, properties.getMaxAttempts(), exception.getMessage());
+                if (attempt < properties.getMaxAttempts() && !sleep(properties.getRetryBackoff().toMillis() * attempt)) {
+                    break;
+                }
+            }
+        }
+
+        if (batch.size() == 1) {
+            batch.getFirst().completion().completeExceptionally(lastFailure);
+            return;
+        }
+        log.warn("Writing the {} payslips of the failed batch one by one", batch.size());
+        for (PendingWrite pendingWrite : batch) {
+            try {
+                add(pendingWrite.documents(), 1);
+                pendingWrite.completion().complete(null);
+            } catch (RuntimeException exception) {
+                log.warn("Indexing payslip of {} documents failed: {}", pendingWrite.documents().size(), exception.getMessage());
+                pendingWrite.completion().completeExceptionally(exception);
+            }
+        }
+    }
+
+    private void add(List<Document> documents, int payslipCount) {
+        long startNanos = System.nanoTime();
+        vectorStore.add(documents);
+        metrics.recordStage(PayslipMetrics.STAGE_INDEX_WRITE, System.nanoTime() - startNanos);
+        metrics.recordIndexedDocuments("batch", documents.size());
+        log.info("Indexed {} documents of {} payslips in {} ms",
+                documents.size(), payslipCount, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record PendingWrite(List<Document> documents, CompletableFuture<Void> completion) {
+    }
+}
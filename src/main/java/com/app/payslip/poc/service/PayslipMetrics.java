@@ -0,0 +1,127 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.util.ImagePreprocessor.EncodedImage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the request pipeline, exposed on {@code /actuator/metrics} and {@code /actuator/prometheus}:
+ * <ul>
+ *     <li>{@code payslip.stage.duration} (tag {@code stage}) - time per pipeline stage, with percentile histograms</li>
+ *     <li>{@code payslip.image.bytes} / {@code payslip.image.pixels} - every image sent to the vision model</li>
+ *     <li>{@code payslip.text.layer.characters} - PDF text layers sent instead of images</li>
+ *     <li>{@code payslip.llm.tokens} (tags {@code operation}, {@code type}) - prompt and completion tokens reported by
+ *     the model</li>
+ *     <li>{@code payslip.index.documents} (tag {@code kind}) - documents built per payslip, written per batch</li>
+ *     <li>{@code payslip.retrieval.documents} (tag {@code source}) - documents retrieved per question</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+public class PayslipMetrics {
+
+    public static final String STAGE_TEXT_LAYER = "text-layer";
+    public static final String STAGE_RENDER = "render";
+    public static final String STAGE_EXTRACTION_LLM = "extraction-llm";
+    public static final String STAGE_INDEX = "index";
+    public static final String STAGE_INDEX_WRITE = "index-write";
+    public static final String STAGE_FACT_STORE = "fact-store";
+    public static final String STAGE_COMPARE_EXTRACTION = "compare-extraction";
+    public static final String STAGE_COMPARE_LLM = "compare-llm";
+
+    public static final String OPERATION_EXTRACTION = "extraction";
+    public static final String OPERATION_ASK = "ask";
+    public static final String OPERATION_COMPARE = "compare";
+
+    public static final String ENDPOINT_EXTRACT = "extract";
+    public static final String ENDPOINT_ASK = "ask";
+    public static final String ENDPOINT_CHAT = "chat";
+    public static final String ENDPOINT_COMPARE = "compare";
+    public static final String ENDPOINT_BULK = "bulk";
+
+    private final MeterRegistry meterRegistry;
+
+    public Timer.Sample startStage() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stopStage(Timer.Sample sample, String stage) {
+        sample.stop(stageTimer(stage));
+    }
+
+    public void recordStage(String stage, long nanos) {
+        stageTimer(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordImages(List<EncodedImage> images) {
+        for (EncodedImage image : images) {
+            summary("payslip.image.bytes", "bytes").record(image.data().length);
+            summary("payslip.image.pixels", "pixels").record((double) image.width() * image.height());
+        }
+    }
+
+    public void recordTextLayer(int characters) {
+        summary("payslip.text.layer.characters", "characters").record(characters);
+    }
+
+    /**
+     * Adds the token usage of a model response; streamed chunks without usage are ignored.
+     */
+    public void recordUsage(String operation, ChatResponse response) {
+        Optional<Usage> usage = Optional.ofNullable(response)
+                .map(ChatResponse::getMetadata)
+                .map(ChatResponseMetadata::getUsage);
+        usage.map(Usage::getPromptTokens).filter(tokens -> tokens > 0).ifPresent(tokens -> tokenCounter(operation, "prompt").increment(tokens));
+        usage.map(Usage::getCompletionTokens).filter(tokens -> tokens > 0).ifPresent(tokens -> tokenCounter(operation, "completion").increment(tokens));
+    }
+
+    public void recordIndexedDocuments(String kind, int documents) {
+        DistributionSummary.builder("payslip.index.documents")
+                .baseUnit("documents")
+                .tag("kind", kind)
+                .register(meterRegistry)
+                .record(documents);
+    }
+
+    public void recordRetrievedDocuments(String source, int documents) {
+        DistributionSummary.builder("payslip.retrieval.documents")
+                .baseUnit("documents")
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(documents);
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("payslip.stage.duration")
+                .description("Time spent per payslip pipeline stage")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary summary(String name, String baseUnit) {
+        return DistributionSummary.builder(name)
+                .baseUnit(baseUnit)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter tokenCounter(String operation, String type) {
+        return Counter.builder("payslip.llm.tokens")
+                .baseUnit("tokens")
+                .tag("operation", operation)
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+}
@@ -1,18 +1,25 @@
 package com.app.payslip.poc.service;
 
+import com.app.payslip.poc.config.SectionCacheProperties;
 import com.app.payslip.poc.model.PayslipSectionDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Resolves the section links cited in ask answers. A docId is a key, so sections are read directly from the store
+ * instead of through a similarity search; sections that were just cited are served from memory. Section ids embed a
+ * hash of the section text, so a cached entry never goes stale. Cited definitions live in the in-process
+ * {@link DefinitionIndex} rather than the store, so their links are resolved there.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -21,38 +28,67 @@ public class PayslipSectionService {
     private static final String METADATA_DOC_ID = "docId";
     private static final String METADATA_SECTION = "section";
     private static final String METADATA_SOURCE = "source";
-    private static final String EXACT_DOC_ID_EMPTY_QUERY = "";
 
-    private final VectorStore vectorStore;
+    private final DocumentLookup documentLookup;
+    private final DefinitionIndex definitionIndex;
+    private final SectionCacheProperties cacheProperties;
+
+    private Cache<String, PayslipSectionDTO> recentSections;
+
+    @PostConstruct
+    void initialize() {
+        recentSections = Caffeine.newBuilder()
+                .maximumSize(cacheProperties.getMaxEntries())
+                .expireAfterWrite(cacheProperties.getTimeToLive())
+                .build();
+    }
 
     public Optional<PayslipSectionDTO> getSectionByDocId(String docId) {
-        log.info("Retrieving payslip section with docId: {}", docId);
+        long startNanos = System.nanoTime();
 
-        List<Document> documents = searchByDocId(docId);
+        PayslipSectionDTO cached = cacheProperties.isEnabled() ? recentSections.getIfPresent(docId) : null;
+        if (cached != null) {
+            log.debug("Served section {} from cache in {} µs", docId, (System.nanoTime() - startNanos) / 1_000);
+            return Optional.of(cached);
+        }
 
-        if (documents.isEmpty()) {
+        Optional<PayslipSectionDTO> section = findDocument(docId).map(this::mapToSectionDTO);
+        if (section.isEmpty()) {
             log.warn("No document found with docId: {}", docId);
-            return Optional.empty();
+        } else {
+            section.ifPresent(this::remember);
+            log.debug("Looked up section {} in {} ms", docId, (System.nanoTime() - startNanos) / 1_000_000);
         }
+        return section;
+    }
 
-        if (documents.size() > 1) {
-            log.warn("Multiple documents found with docId: {}. Returning the first one.", docId);
+    /**
+     * Definitions are looked up in the definition index first; the store is still asked for copies left there by
+     * versions that indexed definitions alongside payslips.
+     */
+    private Optional<Document> findDocument(String docId) {
+        if (docId.startsWith(DefinitionIndex.ID_PREFIX)) {
+            return definitionIndex.findById(docId).or(() -> documentLookup.findById(docId));
         }
-
-        Document document = documents.get(0);
-        return Optional.of(mapToSectionDTO(document));
+        return documentLookup.findById(docId);
     }
 
-    private List<Document> searchByDocId(String docId) {
-        FilterExpressionBuilder builder = new FilterExpressionBuilder();
+    /**
+     * Keeps the documents cited in an answer at hand, since their section links are usually followed right after.
+     */
+    public void rememberCitedSections(Collection<Document> documents) {
+        if (!cacheProperties.isEnabled()) return;
 
-        SearchRequest searchRequest = SearchRequest.builder()
-                .query(EXACT_DOC_ID_EMPTY_QUERY)
-                .topK(5)
-                .filterExpression(builder.eq(METADATA_DOC_ID, docId).build())
-                .build();
+        documents.stream()
+                .filter(document -> document.getMetadata().get(METADATA_DOC_ID) != null)
+                .map(this::mapToSectionDTO)
+                .forEach(this::remember);
+    }
 
-        return vectorStore.similaritySearch(searchRequest);
+    private void remember(PayslipSectionDTO section) {
+        if (cacheProperties.isEnabled() && !section.docId().isEmpty()) {
+            recentSections.put(section.docId(), section);
+        }
     }
 
     private PayslipSectionDTO mapToSectionDTO(Document document) {
@@ -72,4 +108,4 @@ public class PayslipSectionService {
                 .map(String::valueOf)
                 .orElse("");
     }
-}
\ No newline at end of file
+}
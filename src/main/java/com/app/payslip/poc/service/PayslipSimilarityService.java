@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -25,10 +26,13 @@ public class PayslipSimilarityService {
     private static final String METADATA_MONTH_KEY = "period.monthKey";
     private static final String METADATA_PAY_DATE = "period.payDate";
     private static final String METADATA_SOURCE = "source";
+    private static final String METADATA_SECTION = "section";
+    private static final String PAYSLIP_ID_PREFIX = "payslip:";
     private static final String PAYSLIP_SEARCH_QUERY = "payslip information";
     private static final int RESULT_MULTIPLIER = 10;
 
     private final VectorStore vectorStore;
+    private final DocumentLookup documentLookup;
 
     public List<SimilarPayslipDTO> payslipSimilaritySearch(String nationalId, String employeeName, int limit) {
         validateSearchParameters(nationalId, employeeName);
@@ -41,7 +45,8 @@ public class PayslipSimilarityService {
 
         log.info("Found {} documents", documents.size());
 
-        return groupDocumentsByPayslip(documents, limit);
+        List<SimilarPayslipDTO> payslips = groupDocumentsByPayslip(documents, limit);
+        return withParentMetadata(payslips);
     }
 
     private void validateSearchParameters(String nationalId, String employeeName) {
@@ -87,10 +92,11 @@ public class PayslipSimilarityService {
         Map<String, SimilarPayslipDTO> payslipMap = new LinkedHashMap<>();
 
         for (Document doc : documents) {
-            String payslipId = extractPayslipId(doc.getId());
+            String payslipId = extractPayslipId(doc);
 
-            if (!payslipMap.containsKey(payslipId)) {
-                payslipMap.put(payslipId, createSimilarPayslipDTO(doc, payslipId));
+            if (!payslipMap.containsKey(payslipId) || isParent(doc)) {
+                List<String> documentIds = payslipMap.containsKey(payslipId) ? payslipMap.get(payslipId).documentIds() : new ArrayList<>();
+                payslipMap.put(payslipId, createSimilarPayslipDTO(doc, payslipId, documentIds));
             }
 
             payslipMap.get(payslipId).documentIds().add(doc.getId());
@@ -99,7 +105,32 @@ public class PayslipSimilarityService {
         return limitResults(new ArrayList<>(payslipMap.values()), limit);
     }
 
-    private SimilarPayslipDTO createSimilarPayslipDTO(Document doc, String payslipId) {
+    /**
+     * Section documents only carry the identifying keys; the pay date lives on the payslip's parent document. Parents
+     * the search did not return are fetched together in one lookup.
+     */
+    private List<SimilarPayslipDTO> withParentMetadata(List<SimilarPayslipDTO> payslips) {
+        List<String> missingParentIds = payslips.stream()
+                .filter(payslip -> payslip.payDate().isEmpty() && payslip.payslipId().startsWith(PAYSLIP_ID_PREFIX))
+                .map(SimilarPayslipDTO::payslipId)
+                .toList();
+        if (missingParentIds.isEmpty()) {
+            return payslips;
+        }
+
+        Map<String, Document> parents = documentLookup.findByIds(missingParentIds);
+        return payslips.stream()
+                .map(payslip -> Optional.ofNullable(parents.get(payslip.payslipId()))
+                        .map(parent -> createSimilarPayslipDTO(parent, payslip.payslipId(), payslip.documentIds()))
+                        .orElse(payslip))
+                .toList();
+    }
+
+    private boolean isParent(Document doc) {
+        return PayslipIndexService.SECTION_PAYSLIP.equals(doc.getMetadata().get(METADATA_SECTION));
+    }
+
+    private SimilarPayslipDTO createSimilarPayslipDTO(Document doc, String payslipId, List<String> documentIds) {
         Map<String, Object> metadata = doc.getMetadata();
 
         return SimilarPayslipDTO.builder()
@@ -109,11 +140,17 @@ public class PayslipSimilarityService {
                 .monthKey(getMetadataString(metadata, METADATA_MONTH_KEY))
                 .payDate(getMetadataString(metadata, METADATA_PAY_DATE))
                 .source(getMetadataString(metadata, METADATA_SOURCE))
-                .documentIds(new ArrayList<>())
+                .documentIds(documentIds)
                 .build();
     }
 
-    private String extractPayslipId(String documentId) {
+    private String extractPayslipId(Document doc) {
+        Object payslipId = doc.getMetadata().get(PayslipIndexService.METADATA_PAYSLIP_ID);
+        if (payslipId != null) {
+            return payslipId.toString();
+        }
+
+        String documentId = doc.getId();
         if (documentId == null) {
             return "unknown";
         }
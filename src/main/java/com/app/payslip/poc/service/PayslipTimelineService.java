@@ -0,0 +1,303 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.config.TimelineProperties;
+import com.app.payslip.poc.model.PayslipTimelineDTO;
+import com.app.payslip.poc.model.PayslipTimelineDTO.BenefitEventDTO;
+import com.app.payslip.poc.model.PayslipTimelineDTO.MonthDTO;
+import com.app.payslip.poc.model.PayslipTimelineDTO.OutlierDTO;
+import com.app.payslip.poc.model.PayslipTimelineDTO.TrendDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Builds an employee's payslip history from the metadata already in the vector store: no files are re-extracted and
+ * no model is called. One filtered scan streams every indexed section of the employee; each document updates its
+ * month's figures and benefit lines as it arrives, after which trends, benefit additions/removals and outlier months
+ * are derived from the (at most a few dozen) months.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PayslipTimelineService {
+
+    private static final String METADATA_NATIONAL_ID = "personal.nationalId";
+    private static final String METADATA_EMPLOYEE_NUMBER = "employment.employeeNumber";
+    private static final String METADATA_MONTH_KEY = "period.monthKey";
+    private static final String METADATA_SECTION = "section";
+    private static final String SECTION_BENEFIT = "benefit";
+    private static final String CHANGE_ADDED = "ADDED";
+    private static final String CHANGE_REMOVED = "REMOVED";
+
+    /**
+     * Reported metric name to the metadata key it is read from.
+     */
+    private static final Map<String, String> METRICS = new LinkedHashMap<>();
+
+    static {
+        METRICS.put("gross", "financial.gross");
+        METRICS.put("net", "financial.net");
+        METRICS.put("socialSecurity", "financial.rsz");
+        METRICS.put("withholdingTax", "financial.tax");
+    }
+
+    private final DocumentLookup documentLookup;
+    private final TimelineProperties properties;
+
+    public PayslipTimelineDTO timeline(String nationalId, String employeeNumber, Integer months) {
+        Filter.Expression filter = buildFilterExpression(nationalId, employeeNumber);
+        int monthLimit = Optional.ofNullable(months).filter(limit -> limit > 0).orElse(properties.getDefaultMonths());
+
+        long startNanos = System.nanoTime();
+        TreeMap<String, MonthAccumulator> accumulators = new TreeMap<>();
+        int[] documentCount = {0};
+        documentLookup.scan(filter, document -> {
+            documentCount[0]++;
+            accumulate(accumulators, document);
+        });
+        while (accumulators.size() > monthLimit) {
+            accumulators.pollFirstEntry();
+        }
+        List<MonthAccumulator> series = List.copyOf(accumulators.values());
+        log.info("Built timeline of {} months from {} documents in {} ms",
+                series.size(), documentCount[0], (System.nanoTime() - startNanos) / 1_000_000);
+
+        return PayslipTimelineDTO.builder()
+                .nationalId(Optional.ofNullable(nationalId).orElse(""))
+                .employeeNumber(Optional.ofNullable(employeeNumber).orElse(""))
+                .months(series.stream().map(MonthAccumulator::toDTO).toList())
+                .trends(trends(series))
+                .benefitEvents(benefitEvents(series))
+                .outliers(outliers(series))
+                .build();
+    }
+
+    /**
+     * Employee numbers are only unique within one employer, so when both identifiers are given a section must match
+     * both; an employee number on its own can therefore span people at different employers.
+     */
+    private Filter.Expression buildFilterExpression(String nationalId, String employeeNumber) {
+        boolean hasNationalId = nationalId != null && !nationalId.isBlank();
+        boolean hasEmployeeNumber = employeeNumber != null && !employeeNumber.isBlank();
+        if (!hasNationalId && !hasEmployeeNumber) {
+            throw new IllegalArgumentException("At least one of nationalId or employeeNumber must be provided");
+        }
+
+        FilterExpressionBuilder builder = new FilterExpressionBuilder();
+        if (hasNationalId && hasEmployeeNumber) {
+            return builder.and(
+                    builder.eq(METADATA_NATIONAL_ID, nationalId),
+                    builder.eq(METADATA_EMPLOYEE_NUMBER, employeeNumber)
+            ).build();
+        }
+        return hasNationalId
+                ? builder.eq(METADATA_NATIONAL_ID, nationalId).build()
+                : builder.eq(METADATA_EMPLOYEE_NUMBER, employeeNumber).build();
+    }
+
+    /**
+     * The payslip's parent document carries its financial metadata and fills the month's figures (payslips indexed
+     * before the parent/child layout carry it on every section, so any document with the keys will do); benefit
+     * sections add their line, keyed on code (or label) so re-indexed payslips do not double count.
+     */
+    private void accumulate(Map<String, MonthAccumulator> accumulators, Document document) {
+        Map<String, Object> metadata = document.getMetadata();
+        String monthKey = stringValue(metadata.get(METADATA_MONTH_KEY));
+        if (monthKey.isEmpty()) return;
+
+        MonthAccumulator month = accumulators.computeIfAbsent(monthKey, MonthAccumulator::new);
+        if (month.figures.isEmpty() && metadata.containsKey(METRICS.get("net"))) {
+            METRICS.forEach((metric, key) -> month.figures.put(metric, decimalValue(metadata.get(key))));
+        }
+
+        if (SECTION_BENEFIT.equals(stringValue(metadata.get(METADATA_SECTION)))) {
+            String code = stringValue(metadata.get("benefit.code"));
+            String label = stringValue(metadata.get("benefit.label"));
+            String key = code.isEmpty() ? label : code;
+            if (!key.isEmpty()) {
+                month.benefits.putIfAbsent(key, new BenefitLine(code, label, decimalValue(metadata.get("benefit.amount"))));
+            }
+        }
+    }
+
+    private List<TrendDTO> trends(List<MonthAccumulator> series) {
+        if (series.isEmpty()) return List.of();
+
+        List<TrendDTO> trends = new ArrayList<>();
+        for (String metric : METRICS.keySet()) {
+            BigDecimal first = series.getFirst().figure(metric);
+            BigDecimal last = series.getLast().figure(metric);
+            BigDecimal change = last.subtract(first);
+            Statistics statistics = Statistics.of(series, metric);
+
+            trends.add(TrendDTO.builder()
+                    .metric(metric)
+                    .first(first)
+                    .last(last)
+                    .change(change)
+                    .changePercent(first.signum() == 0 ? null : round(change.doubleValue() / first.doubleValue() * 100.0))
+                    .min(series.stream().map(month -> month.figure(metric)).min(Comparator.naturalOrder()).orElse(BigDecimal.ZERO))
+                    .max(series.stream().map(month -> month.figure(metric)).max(Comparator.naturalOrder()).orElse(BigDecimal.ZERO))
+                    .mean(money(statistics.mean()))
+                    .averageMonthlyChange(money(slopePerMonth(series, metric)))
+                    .build());
+        }
+        return trends;
+    }
+
+    /**
+     * Least-squares slope against calendar months, so gaps in the indexed history do not distort the trend.
+     */
+    private double slopePerMonth(List<MonthAccumulator> series, String metric) {
+        if (series.size() < 2) return 0.0;
+
+        YearMonth origin = series.getFirst().yearMonth();
+        double sumX = 0, sumY = 0, sumXY = 0, sumXX = 0;
+        for (MonthAccumulator month : series) {
+            double x = origin == null || month.yearMonth() == null ? 0 : ChronoUnit.MONTHS.between(origin, month.yearMonth());
+            double y = month.figure(metric).doubleValue();
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumXX += x * x;
+        }
+        int n = series.size();
+        double denominator = n * sumXX - sumX * sumX;
+        return denominator == 0 ? 0.0 : (n * sumXY - sumX * sumY) / denominator;
+    }
+
+    private List<BenefitEventDTO> benefitEvents(List<MonthAccumulator> series) {
+        List<BenefitEventDTO> events = new ArrayList<>();
+        for (int i = 1; i < series.size(); i++) {
+            MonthAccumulator previous = series.get(i - 1);
+            MonthAccumulator current = series.get(i);
+            current.benefits.forEach((key, line) -> {
+                if (!previous.benefits.containsKey(key)) events.add(line.toEvent(current.monthKey, CHANGE_ADDED));
+            });
+            previous.benefits.forEach((key, line) -> {
+                if (!current.benefits.containsKey(key)) events.add(line.toEvent(current.monthKey, CHANGE_REMOVED));
+            });
+        }
+        return events;
+    }
+
+    private List<OutlierDTO> outliers(List<MonthAccumulator> series) {
+        List<OutlierDTO> outliers = new ArrayList<>();
+        for (String metric : METRICS.keySet()) {
+            Statistics statistics = Statistics.of(series, metric);
+            if (statistics.standardDeviation() == 0.0) continue;
+
+            for (MonthAccumulator month : series) {
+                double zScore = (month.figure(metric).doubleValue() - statistics.mean()) / statistics.standardDeviation();
+                if (Math.abs(zScore) >= properties.getOutlierZScore()) {
+                    outliers.add(OutlierDTO.builder()
+                            .monthKey(month.monthKey)
+                            .metric(metric)
+                            .value(month.figure(metric))
+                            .mean(money(statistics.mean()))
+                            .zScore(round(zScore))
+                            .build());
+                }
+            }
+        }
+        outliers.sort(Comparator.comparing(OutlierDTO::monthKey));
+        return outliers;
+    }
+
+    private static String stringValue(Object value) {
+        return value == null ? "" : String.valueOf(value);
+    }
+
+    private static BigDecimal decimalValue(Object value) {
+        if (value == null) return BigDecimal.ZERO;
+        try {
+            return new BigDecimal(String.valueOf(value));
+        } catch (NumberFormatException exception) {
+            return BigDecimal.ZERO;
+        }
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private record BenefitLine(String code, String label, BigDecimal amount) {
+
+        private BenefitEventDTO toEvent(String monthKey, String changeType) {
+            return BenefitEventDTO.builder()
+                    .monthKey(monthKey)
+                    .code(code)
+                    .label(label)
+                    .changeType(changeType)
+                    .amount(amount)
+                    .build();
+        }
+    }
+
+    /**
+     * Population mean and standard deviation of one metric, computed in a single Welford pass.
+     */
+    private record Statistics(double mean, double standardDeviation) {
+
+        private static Statistics of(List<MonthAccumulator> series, String metric) {
+            double mean = 0.0;
+            double sumOfSquares = 0.0;
+            int count = 0;
+            for (MonthAccumulator month : series) {
+                double value = month.figure(metric).doubleValue();
+                count++;
+                double delta = value - mean;
+                mean += delta / count;
+                sumOfSquares += delta * (value - mean);
+            }
+            return count == 0 ? new Statistics(0.0, 0.0) : new Statistics(mean, Math.sqrt(sumOfSquares / count));
+        }
+    }
+
+    private static final class MonthAccumulator {
+        private final String monthKey;
+        private final Map<String, BigDecimal> figures = new LinkedHashMap<>();
+        private final Map<String, BenefitLine> benefits = new LinkedHashMap<>();
+
+        private MonthAccumulator(String monthKey) {
+            this.monthKey = monthKey;
+        }
+
+        private BigDecimal figure(String metric) {
+            return figures.getOrDefault(metric, BigDecimal.ZERO);
+        }
+
+        private YearMonth yearMonth() {
+            try {
+                return YearMonth.parse(monthKey);
+            } catch (DateTimeParseException exception) {
+                return null;
+            }
+        }
+
+        private MonthDTO toDTO() {
+            return MonthDTO.builder()
+                    .monthKey(monthKey)
+                    .gross(figure("gross"))
+                    .net(figure("net"))
+                    .socialSecurity(figure("socialSecurity"))
+                    .withholdingTax(figure("withholdingTax"))
+                    .benefitCount(benefits.size())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.app.payslip.poc.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Records the token usage of every model call made through the {@link ChatClient}, plain and streamed, into both
+ * {@link PayslipMetrics} and the {@link TokenUsageLedger}. Callers describe the call with {@link #usage}: the endpoint
+ * the request came in on, the operation, the employer and the estimated image tokens. When no employer is given it
+ * is read from the response if that is an extracted payslip, since extraction only learns the employer from the model.
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenUsageAdvisor implements CallAdvisor, StreamAdvisor {
+
+    public static final String ENDPOINT = "payslip.usage.endpoint";
+    public static final String OPERATION = "payslip.usage.operation";
+    public static final String EMPLOYER_NUMBER = "payslip.usage.employerNumber";
+    public static final String IMAGE_TOKENS = "payslip.usage.imageTokens";
+
+    private static final String UNKNOWN = "unknown";
+
+    private final PayslipMetrics metrics;
+    private final TokenUsageLedger tokenUsageLedger;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param employerNumber the employer, or {@code null} to take it from the extracted payslip in the response
+     */
+    public static Consumer<ChatClient.AdvisorSpec> usage(String endpoint, String operation, String employerNumber, int imageTokens) {
+        return advisor -> {
+            advisor.param(ENDPOINT, endpoint).param(OPERATION, operation).param(IMAGE_TOKENS, imageTokens);
+            if (employerNumber != null) advisor.param(EMPLOYER_NUMBER, employerNumber);
+        };
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
+        ChatClientResponse chatClientResponse = callAdvisorChain.nextCall(chatClientRequest);
+        record(chatClientRequest.context(), chatClientResponse.chatResponse());
+        return chatClientResponse;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAdvisorChain streamAdvisorChain) {
+        return streamAdvisorChain.nextStream(chatClientRequest)
+                .doOnNext(chatClientResponse -> record(chatClientRequest.context(), chatClientResponse.chatResponse()));
+    }
+
+    @Override
+    public String getName() {
+        return TokenUsageAdvisor.class.getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    /**
+     * Streamed chunks without usage are skipped by both sinks, so only the final chunk is counted.
+     */
+    private void record(Map<String, Object> context, ChatResponse response) {
+        Optional<Usage> usage = Optional.ofNullable(response).map(ChatResponse::getMetadata).map(ChatResponseMetadata::getUsage);
+        if (usage.map(Usage::getTotalTokens).orElse(0) == 0) return;
+
+        String operation = String.valueOf(context.getOrDefault(OPERATION, UNKNOWN));
+        String endpoint = String.valueOf(context.getOrDefault(ENDPOINT, UNKNOWN));
+        String employerNumber = Optional.ofNullable(context.get(EMPLOYER_NUMBER)).map(String::valueOf).orElseGet(() -> extractedEmployerNumber(response));
+        int imageTokens = context.get(IMAGE_TOKENS) instanceof Integer tokens ? tokens : 0;
+
+        metrics.recordUsage(operation, response);
+        tokenUsageLedger.record(endpoint, operation, employerNumber, response, imageTokens);
+    }
+
+    private String extractedEmployerNumber(ChatResponse response) {
+        String text = Optional.ofNullable(response.getResult())
+                .map(Generation::getOutput)
+                .map(AssistantMessage::getText)
+                .orElse("")
+                .replaceAll("^\\s*```(?:json)?|```\\s*$", "");
+        try {
+            return objectMapper.readTree(text).path("employer").path("employerNumber").asText("");
+        } catch (JsonProcessingException exception) {
+            return "";
+        }
+    }
+}
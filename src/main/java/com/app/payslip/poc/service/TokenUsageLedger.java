@@ -0,0 +1,187 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.config.TokenLedgerProperties;
+import com.app.payslip.poc.model.TokenUsageDTO;
+import com.app.payslip.poc.model.TokenUsageDTO.EntryDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token usage of every model call, summed per day, endpoint the request came in on ({@code extract}, {@code ask},
+ * {@code chat}, {@code compare}, {@code bulk}), operation ({@code extraction}, {@code ask}, {@code compare}) and employer
+ * number, with a cost estimate from {@code payslip.token-ledger.*-price-per-million}. An extraction triggered by
+ * {@code /ask} is therefore booked as endpoint {@code ask}, operation {@code extraction}. Calls are recorded by
+ * {@link TokenUsageAdvisor}.
+ * <p>
+ * Counters live in memory and are written to {@code payslip.token-ledger.file} every {@code flush-interval} and on
+ * shutdown; the file is read back on startup, so totals survive restarts. Image tokens are estimated from the size
+ * of the images sent (the API only reports them as part of the prompt tokens).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenUsageLedger {
+
+    private static final BigDecimal ONE_MILLION = BigDecimal.valueOf(1_000_000);
+    private static final TypeReference<List<EntryDTO>> ENTRY_LIST = new TypeReference<>() {
+    };
+
+    private final TokenLedgerProperties properties;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Key, Counters> counters = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @PostConstruct
+    void load() {
+        if (!properties.isEnabled()) return;
+
+        Path file = Path.of(properties.getFile());
+        if (!Files.isRegularFile(file)) return;
+        try {
+            List<EntryDTO> entries = objectMapper.readValue(file.toFile(), ENTRY_LIST);
+            for (EntryDTO entry : entries) {
+                Counters entryCounters = counters.computeIfAbsent(new Key(entry.day(), Optional.ofNullable(entry.endpoint()).orElse(""), entry.operation(), entry.employerNumber()), key -> new Counters());
+                entryCounters.add(entry.calls(), entry.promptTokens(), entry.completionTokens(), entry.imageTokens());
+            }
+            log.info("Loaded {} token usage entries from '{}'", entries.size(), file.toAbsolutePath());
+        } catch (IOException exception) {
+            log.warn("Ignoring unreadable token usage file '{}': {}", file, exception.getMessage());
+        }
+    }
+
+    /**
+     * Adds one model call; responses without usage (intermediate stream chunks) are skipped.
+     *
+     * @param imageTokens estimated tokens of the images in the prompt, {@code 0} for text-only calls
+     */
+    public void record(String endpoint, String operation, String employerNumber, ChatResponse response, int imageTokens) {
+        if (!properties.isEnabled()) return;
+
+        Optional<Usage> usage = Optional.ofNullable(response).map(ChatResponse::getMetadata).map(ChatResponseMetadata::getUsage);
+        long promptTokens = usage.map(Usage::getPromptTokens).orElse(0);
+        long completionTokens = usage.map(Usage::getCompletionTokens).orElse(0);
+        if (promptTokens == 0 && completionTokens == 0) return;
+
+        Key key = new Key(LocalDate.now(), endpoint, operation, Optional.ofNullable(employerNumber).orElse(""));
+        counters.computeIfAbsent(key, ignored -> new Counters()).add(1, promptTokens, completionTokens, imageTokens);
+        dirty.set(true);
+    }
+
+    /**
+     * Entries within the inclusive day range, optionally restricted to one endpoint, operation and/or employer, plus
+     * their total.
+     */
+    public TokenUsageDTO report(LocalDate from, LocalDate to, String endpoint, String operation, String employerNumber) {
+        List<EntryDTO> entries = counters.entrySet().stream()
+                .filter(entry -> from == null || !entry.getKey().day().isBefore(from))
+                .filter(entry -> to == null || !entry.getKey().day().isAfter(to))
+                .filter(entry -> endpoint == null || endpoint.isBlank() || endpoint.equals(entry.getKey().endpoint()))
+                .filter(entry -> operation == null || operation.isBlank() || operation.equals(entry.getKey().operation()))
+                .filter(entry -> employerNumber == null || employerNumber.isBlank() || employerNumber.equals(entry.getKey().employerNumber()))
+                .map(entry -> toEntry(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing(EntryDTO::day).thenComparing(EntryDTO::endpoint).thenComparing(EntryDTO::operation).thenComparing(EntryDTO::employerNumber))
+                .toList();
+
+        Counters total = new Counters();
+        entries.forEach(entry -> total.add(entry.calls(), entry.promptTokens(), entry.completionTokens(), entry.imageTokens()));
+        return TokenUsageDTO.builder()
+                .entries(entries)
+                .total(toEntry(new Key(null, "", "", ""), total))
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${payslip.token-ledger.flush-interval:1m}", initialDelayString = "${payslip.token-ledger.flush-interval:1m}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    void flush() {
+        flushLock.lock();
+        try {
+            writeIfDirty();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeIfDirty() {
+        if (!properties.isEnabled() || !dirty.getAndSet(false)) return;
+
+        Path file = Path.of(properties.getFile());
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            List<EntryDTO> entries = counters.entrySet().stream().map(entry -> toEntry(entry.getKey(), entry.getValue())).toList();
+            objectMapper.writeValue(tempFile.toFile(), entries);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            dirty.set(true);
+            log.warn("Failed to write token usage to '{}': {}", file, exception.getMessage());
+        }
+    }
+
+    private EntryDTO toEntry(Key key, Counters entryCounters) {
+        long promptTokens = entryCounters.promptTokens.sum();
+        long completionTokens = entryCounters.completionTokens.sum();
+        BigDecimal cost = properties.getPromptPricePerMillion().multiply(BigDecimal.valueOf(promptTokens))
+                .add(properties.getCompletionPricePerMillion().multiply(BigDecimal.valueOf(completionTokens)))
+                .divide(ONE_MILLION, 4, RoundingMode.HALF_UP);
+
+        return EntryDTO.builder()
+                .day(key.day())
+                .endpoint(key.endpoint())
+                .operation(key.operation())
+                .employerNumber(key.employerNumber())
+                .calls(entryCounters.calls.sum())
+                .promptTokens(promptTokens)
+                .completionTokens(completionTokens)
+                .imageTokens(entryCounters.imageTokens.sum())
+                .estimatedCostUsd(cost)
+                .build();
+    }
+
+    private record Key(LocalDate day, String endpoint, String operation, String employerNumber) {
+    }
+
+    private static final class Counters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder completionTokens = new LongAdder();
+        private final LongAdder imageTokens = new LongAdder();
+
+        private void add(long calls, long promptTokens, long completionTokens, long imageTokens) {
+            this.calls.add(calls);
+            this.promptTokens.add(promptTokens);
+            this.completionTokens.add(completionTokens);
+            this.imageTokens.add(imageTokens);
+        }
+    }
+}
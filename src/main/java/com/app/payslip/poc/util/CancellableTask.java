@@ -0,0 +1,33 @@
+package com.app.payslip.poc.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Work submitted to an executor together with its result. {@link CompletableFuture#cancel} does not interrupt the
+ * thread computing the value, so cancelling goes through the {@link Future} returned by the executor, which does.
+ */
+public record CancellableTask<T>(CompletableFuture<T> result, Future<?> task) {
+
+    public static <T> CancellableTask<T> submit(ExecutorService executor, Callable<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(work.call());
+            } catch (Throwable failure) {
+                result.completeExceptionally(failure);
+            }
+        });
+        return new CancellableTask<>(result, task);
+    }
+
+    /**
+     * Interrupts the work if it is running (or keeps it from starting) and completes the result as cancelled.
+     */
+    public void cancel() {
+        task.cancel(true);
+        result.cancel(false);
+    }
+}
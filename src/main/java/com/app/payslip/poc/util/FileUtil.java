@@ -1,34 +1,95 @@
 package com.app.payslip.poc.util;
 
+import com.app.payslip.poc.util.ImagePreprocessor.EncodedImage;
+import com.app.payslip.poc.util.ImagePreprocessor.ImageOptions;
 import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+@Slf4j
 @UtilityClass
 public class FileUtil {
 
     private static final String PDF_CONTENT_TYPE = "application/pdf";
     private static final String IMAGE_CONTENT_TYPE_PREFIX = "image/";
-    private static final String PNG_FORMAT = "PNG";
-    private static final int PDF_RENDERING_DPI = 300;
-    private static final int FIRST_PAGE_INDEX = 0;
+    private static final float POINTS_PER_INCH = 72f;
+    private static final double MAX_GARBLED_CHARACTER_RATIO = 0.05;
 
-    public static byte[] convertFileToImageBytes(MultipartFile file) throws IOException {
+    /**
+     * How the pages of a multi-page PDF are handed to the model.
+     */
+    public enum PageMode {
+        /** One image per page, each sent as its own media part. */
+        PAGES,
+        /** All pages stacked vertically into a single image. */
+        TILED
+    }
+
+    /**
+     * @param dpi                 rendering resolution for PDF pages
+     * @param maxPages            pages beyond this limit are ignored
+     * @param parallelism         upper bound on pages rendered at the same time
+     * @param maxPixelsInFlight   per-request budget for page bitmaps held in memory at once; lowers parallelism
+     * @param maxTiledPixels      per-request budget for the tiled canvas; lowers the DPI when exceeded
+     * @param pageMode            per-page images or a single tiled image
+     * @param imageOptions        target resolution and encoding of the images sent to the model
+     */
+    public record RenderOptions(
+            int dpi,
+            int maxPages,
+            int parallelism,
+            long maxPixelsInFlight,
+            long maxTiledPixels,
+            PageMode pageMode,
+            ImageOptions imageOptions
+    ) {
+    }
+
+    /**
+     * @param maxPages             pages beyond this limit are ignored
+     * @param minCharacters        minimum visible characters across all pages
+     * @param minCharactersPerPage pages below this are treated as scanned and force the image path
+     * @param columnWidthPoints    horizontal distance mapped to one character column in the layout
+     */
+    public record TextLayerOptions(
+            int maxPages,
+            int minCharacters,
+            int minCharactersPerPage,
+            float columnWidthPoints
+    ) {
+    }
+
+    public static List<EncodedImage> convertFileToImages(MultipartFile file, RenderOptions options) throws IOException {
         String contentType = getContentType(file);
 
         if (isPdf(contentType)) {
-            return convertPdfToImageBytes(file);
+            return convertPdfToImages(file, options);
         }
 
         if (isImage(contentType)) {
-            return convertImageFileToBytes(file);
+            return List.of(convertImageFile(file, contentType, options.imageOptions()));
         }
 
         throw new UnsupportedOperationException(
@@ -36,6 +97,55 @@ public class FileUtil {
         );
     }
 
+    /**
+     * Returns the text layer of a digitally generated PDF, laid out in columns that follow the glyph positions, or
+     * empty when the file is not a PDF or the text layer is missing or too sparse to be trusted (e.g. scans).
+     */
+    public static Optional<String> extractPdfTextLayer(MultipartFile file, TextLayerOptions options) throws IOException {
+        if (!isPdf(getContentType(file))) {
+            return Optional.empty();
+        }
+
+        try (PDDocument document = Loader.loadPDF(file.getBytes())) {
+            int pageCount = Math.min(document.getNumberOfPages(), options.maxPages());
+            LayoutTextStripper stripper = new LayoutTextStripper(options.columnWidthPoints());
+            StringBuilder text = new StringBuilder();
+            int totalCharacters = 0;
+
+            for (int pageNumber = 1; pageNumber <= pageCount; pageNumber++) {
+                stripper.setStartPage(pageNumber);
+                stripper.setEndPage(pageNumber);
+                String pageText = stripper.getText(document);
+
+                int pageCharacters = countVisibleCharacters(pageText);
+                if (pageCharacters < options.minCharactersPerPage() || !looksLikeReadableText(pageText)) {
+                    log.debug("PDF page {} has no usable text layer ({} characters)", pageNumber, pageCharacters);
+                    return Optional.empty();
+                }
+                totalCharacters += pageCharacters;
+                text.append("--- Page ").append(pageNumber).append(" ---\n").append(pageText.stripTrailing()).append("\n");
+            }
+
+            return totalCharacters >= options.minCharacters() ? Optional.of(text.toString()) : Optional.empty();
+        }
+    }
+
+    private static int countVisibleCharacters(String text) {
+        return (int) text.chars().filter(character -> !Character.isWhitespace(character)).count();
+    }
+
+    /**
+     * Fonts without a usable ToUnicode map extract as replacement or control characters; those need the image path.
+     */
+    private static boolean looksLikeReadableText(String text) {
+        long visible = Math.max(1, countVisibleCharacters(text));
+        long garbled = text.chars()
+                .filter(character -> character == '\uFFFD' || (Character.isISOControl(character) && !Character.isWhitespace(character)))
+                .count();
+        boolean hasDigits = text.chars().anyMatch(Character::isDigit);
+        return hasDigits && (double) garbled / visible < MAX_GARBLED_CHARACTER_RATIO;
+    }
+
     private static String getContentType(MultipartFile file) throws IOException {
         String contentType = file.getContentType();
         if (contentType == null) {
@@ -52,26 +162,179 @@ public class FileUtil {
         return contentType.startsWith(IMAGE_CONTENT_TYPE_PREFIX);
     }
 
-    private static byte[] convertPdfToImageBytes(MultipartFile pdfFile) throws IOException {
-        BufferedImage image = convertPdfToImage(pdfFile);
-        return convertImageToBytes(image);
+    private static List<EncodedImage> convertPdfToImages(MultipartFile pdfFile, RenderOptions options) throws IOException {
+        byte[] pdfBytes = pdfFile.getBytes();
+        List<Dimension> pageSizes = pageSizes(pdfBytes, options);
+        if (pageSizes.isEmpty()) {
+            throw new UnsupportedOperationException("PDF does not contain any pages");
+        }
+
+        if (options.pageMode() == PageMode.TILED && pageSizes.size() > 1) {
+            return List.of(renderTiled(pdfBytes, pageSizes, options));
+        }
+        return renderPages(pdfBytes, pageSizes, options);
     }
 
-    private static byte[] convertImageFileToBytes(MultipartFile imageFile) throws IOException {
-        BufferedImage image = readImage(imageFile);
+    /**
+     * Uploaded images that are already acceptable are sent as-is; only the others are decoded and re-encoded.
+     */
+    private static EncodedImage convertImageFile(MultipartFile imageFile, String contentType, ImageOptions imageOptions) throws IOException {
+        byte[] imageBytes = imageFile.getBytes();
+        Optional<EncodedImage> unchanged = ImagePreprocessor.passThrough(imageBytes, contentType, imageOptions);
+        if (unchanged.isPresent()) {
+            return unchanged.get();
+        }
+
+        BufferedImage image = readImage(imageBytes);
         validateImage(image);
-        return convertImageToBytes(image);
+        return ImagePreprocessor.encode(image, imageOptions);
     }
 
-    private static BufferedImage convertPdfToImage(MultipartFile pdfFile) throws IOException {
-        try (PDDocument document = Loader.loadPDF(pdfFile.getBytes())) {
-            PDFRenderer pdfRenderer = new PDFRenderer(document);
-            return pdfRenderer.renderImageWithDPI(FIRST_PAGE_INDEX, PDF_RENDERING_DPI);
+    /**
+     * Page sizes in pixels at the configured DPI, honouring page rotation like {@link PDFRenderer} does.
+     */
+    private static List<Dimension> pageSizes(byte[] pdfBytes, RenderOptions options) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdfBytes)) {
+            int pageCount = document.getNumberOfPages();
+            if (pageCount > options.maxPages()) {
+                log.warn("PDF has {} pages, only the first {} are rendered", pageCount, options.maxPages());
+            }
+
+            List<Dimension> sizes = new ArrayList<>();
+            for (int pageIndex = 0; pageIndex < Math.min(pageCount, options.maxPages()); pageIndex++) {
+                PDPage page = document.getPage(pageIndex);
+                PDRectangle cropBox = page.getCropBox();
+                int width = Math.round(cropBox.getWidth() / POINTS_PER_INCH * options.dpi());
+                int height = Math.round(cropBox.getHeight() / POINTS_PER_INCH * options.dpi());
+                boolean rotated = page.getRotation() % 180 != 0;
+                sizes.add(rotated ? new Dimension(height, width) : new Dimension(width, height));
+            }
+            return sizes;
         }
     }
 
-    private static BufferedImage readImage(MultipartFile imageFile) throws IOException {
-        return ImageIO.read(imageFile.getInputStream());
+    /**
+     * Renders and encodes pages concurrently; each bitmap is dropped as soon as it is encoded. Pages are rendered
+     * directly at the DPI that meets the target resolution instead of rendering at full DPI and scaling down.
+     */
+    private static List<EncodedImage> renderPages(byte[] pdfBytes, List<Dimension> pageSizes, RenderOptions options) throws IOException {
+        double scale = pageSizes.stream()
+                .mapToDouble(size -> ImagePreprocessor.scaleFactor(size.width, size.height, options.imageOptions()))
+                .min()
+                .orElse(1.0);
+        int dpi = scaledDpi(options.dpi(), scale);
+
+        EncodedImage[] encodedPages = new EncodedImage[pageSizes.size()];
+        renderConcurrently(pdfBytes, scaledSizes(pageSizes, scale), dpi, options, (pageIndex, image) ->
+                encodedPages[pageIndex] = ImagePreprocessor.encode(image, options.imageOptions())
+        );
+        return Arrays.asList(encodedPages);
+    }
+
+    /**
+     * Stacks all pages into one canvas, drawing each page in place as it finishes rendering.
+     */
+    private static EncodedImage renderTiled(byte[] pdfBytes, List<Dimension> pageSizes, RenderOptions options) throws IOException {
+        int canvasWidth = pageSizes.stream().mapToInt(size -> size.width).max().orElse(0);
+        int canvasHeight = pageSizes.stream().mapToInt(size -> size.height).sum();
+        double budgetScale = Math.min(1.0, Math.sqrt((double) options.maxTiledPixels() / Math.max(1L, (long) canvasWidth * canvasHeight)));
+        double scale = Math.min(budgetScale, ImagePreprocessor.scaleFactor(canvasWidth, canvasHeight, options.imageOptions()));
+
+        int dpi = scaledDpi(options.dpi(), scale);
+        List<Dimension> scaledSizes = scaledSizes(pageSizes, scale);
+        if (budgetScale < 1.0) {
+            log.info("Tiled rendering of {} pages lowered to {} DPI to stay within {} pixels",
+                    pageSizes.size(), dpi, options.maxTiledPixels());
+        }
+
+        int[] offsets = new int[scaledSizes.size()];
+        for (int pageIndex = 1; pageIndex < offsets.length; pageIndex++) {
+            offsets[pageIndex] = offsets[pageIndex - 1] + scaledSizes.get(pageIndex - 1).height;
+        }
+        BufferedImage canvas = new BufferedImage(
+                scaledSizes.stream().mapToInt(size -> size.width).max().orElse(1),
+                offsets[offsets.length - 1] + scaledSizes.get(offsets.length - 1).height,
+                BufferedImage.TYPE_INT_RGB
+        );
+
+        Graphics2D graphics = canvas.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            renderConcurrently(pdfBytes, scaledSizes, dpi, options, (pageIndex, image) -> {
+                synchronized (canvas) {
+                    graphics.drawImage(image, 0, offsets[pageIndex], null);
+                }
+            });
+        } finally {
+            graphics.dispose();
+        }
+        return ImagePreprocessor.encode(canvas, options.imageOptions());
+    }
+
+    private static int scaledDpi(int dpi, double scale) {
+        return Math.max(1, (int) Math.floor(dpi * scale));
+    }
+
+    private static List<Dimension> scaledSizes(List<Dimension> pageSizes, double scale) {
+        return pageSizes.stream()
+                .map(size -> new Dimension((int) Math.ceil(size.width * scale), (int) Math.ceil(size.height * scale)))
+                .toList();
+    }
+
+    /**
+     * Each worker opens its own {@link PDDocument} because PDFBox rendering is not thread-safe per document.
+     * The number of workers is capped so the bitmaps alive at the same time stay within
+     * {@link RenderOptions#maxPixelsInFlight()}.
+     */
+    private static void renderConcurrently(
+            byte[] pdfBytes,
+            List<Dimension> pageSizes,
+            int dpi,
+            RenderOptions options,
+            PageConsumer pageConsumer
+    ) throws IOException {
+        long largestPagePixels = pageSizes.stream().mapToLong(size -> (long) size.width * size.height).max().orElse(1);
+        int workers = (int) Math.max(1, Math.min(
+                Math.min(options.parallelism(), pageSizes.size()),
+                options.maxPixelsInFlight() / Math.max(1, largestPagePixels)
+        ));
+
+        AtomicInteger nextPage = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int worker = 0; worker < workers; worker++) {
+                futures.add(executor.submit(() -> {
+                    try (PDDocument document = Loader.loadPDF(pdfBytes)) {
+                        PDFRenderer pdfRenderer = new PDFRenderer(document);
+                        int pageIndex;
+                        while ((pageIndex = nextPage.getAndIncrement()) < pageSizes.size()) {
+                            pageConsumer.accept(pageIndex, pdfRenderer.renderImageWithDPI(pageIndex, dpi));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                awaitPage(future);
+            }
+        }
+    }
+
+    private static void awaitPage(Future<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering PDF pages", interruptedException);
+        } catch (ExecutionException executionException) {
+            if (executionException.getCause() instanceof IOException ioException) throw ioException;
+            throw new IOException("Failed to render PDF page", executionException.getCause());
+        }
+    }
+
+    private static BufferedImage readImage(byte[] imageBytes) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(imageBytes));
     }
 
     private static void validateImage(BufferedImage image) {
@@ -80,9 +343,52 @@ public class FileUtil {
         }
     }
 
-    private static byte[] convertImageToBytes(BufferedImage image) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ImageIO.write(image, PNG_FORMAT, outputStream);
-        return outputStream.toByteArray();
+    /**
+     * Keeps the horizontal layout of each line by padding words to the column their first glyph starts at, so
+     * label/amount pairs in payslip tables stay on the same line and in the same order as printed.
+     */
+    private static final class LayoutTextStripper extends PDFTextStripper {
+
+        private final float columnWidthPoints;
+        private int currentColumn;
+
+        private LayoutTextStripper(float columnWidthPoints) {
+            this.columnWidthPoints = columnWidthPoints;
+            setSortByPosition(true);
+        }
+
+        @Override
+        protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+            if (!textPositions.isEmpty()) {
+                int targetColumn = Math.round(textPositions.get(0).getXDirAdj() / columnWidthPoints);
+                int padding = currentColumn == 0 ? targetColumn : Math.max(1, targetColumn - currentColumn);
+                super.writeString(" ".repeat(padding));
+                currentColumn += padding;
+            }
+            super.writeString(text);
+            currentColumn += text.length();
+        }
+
+        @Override
+        protected void writeWordSeparator() {
+            // Spacing is derived from glyph positions in writeString.
+        }
+
+        @Override
+        protected void writeLineSeparator() throws IOException {
+            super.writeLineSeparator();
+            currentColumn = 0;
+        }
+
+        @Override
+        protected void writePageStart() throws IOException {
+            super.writePageStart();
+            currentColumn = 0;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PageConsumer {
+        void accept(int pageIndex, BufferedImage image) throws IOException;
     }
 }
@@ -0,0 +1,42 @@
+package com.app.payslip.poc.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.UUID;
+
+@UtilityClass
+public class HashUtil {
+
+    private static final String SHA_256 = "SHA-256";
+    private static final int SHORT_HASH_LENGTH = 8;
+
+    public static String sha256Hex(byte[] bytes) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance(SHA_256);
+            return toHex(messageDigest.digest(bytes));
+        } catch (NoSuchAlgorithmException exception) {
+            return "";
+        }
+    }
+
+    public static String shortSha256(String text) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance(SHA_256);
+            byte[] digest = messageDigest.digest(Optional.ofNullable(text).orElse("").getBytes(StandardCharsets.UTF_8));
+            return toHex(digest).substring(0, SHORT_HASH_LENGTH);
+        } catch (NoSuchAlgorithmException exception) {
+            // SHA-256 should always be available, but fallback just in case
+            return UUID.randomUUID().toString().substring(0, SHORT_HASH_LENGTH);
+        }
+    }
+
+    public static String toHex(byte[] data) {
+        StringBuilder stringBuilder = new StringBuilder(data.length * 2);
+        for (byte byteValue : data) stringBuilder.append(String.format("%02x", byteValue));
+        return stringBuilder.toString();
+    }
+}
@@ -0,0 +1,214 @@
+package com.app.payslip.poc.util;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Prepares images for the vision model: scales them to the resolution the model actually looks at, optionally drops
+ * colour, and picks the encoding. Images that already satisfy the options are passed through untouched.
+ * <p>
+ * The size limits mirror OpenAI's high-detail preprocessing (fit within 2048x2048, then shortest side at most 768,
+ * evaluated in 512px tiles); sending more pixels only costs upload time because the model downsizes them anyway.
+ */
+@UtilityClass
+public class ImagePreprocessor {
+
+    private static final int VISION_TILE_SIZE = 512;
+    private static final int VISION_BASE_TOKENS = 85;
+    private static final int VISION_TOKENS_PER_TILE = 170;
+    private static final Set<String> PASS_THROUGH_MIME_TYPES = Set.of(
+            MimeTypeUtils.IMAGE_PNG_VALUE, MimeTypeUtils.IMAGE_JPEG_VALUE, MimeTypeUtils.IMAGE_GIF_VALUE, "image/webp"
+    );
+
+    public enum ImageFormat {
+        PNG(MimeTypeUtils.IMAGE_PNG, "png"),
+        JPEG(MimeTypeUtils.IMAGE_JPEG, "jpeg");
+
+        private final MimeType mimeType;
+        private final String formatName;
+
+        ImageFormat(MimeType mimeType, String formatName) {
+            this.mimeType = mimeType;
+            this.formatName = formatName;
+        }
+    }
+
+    /**
+     * @param maxLongSide  longest side in pixels after scaling, {@code 0} for no limit
+     * @param maxShortSide shortest side in pixels after scaling, {@code 0} for no limit
+     * @param grayscale    convert to 8-bit gray before encoding
+     * @param format       encoding used when an image has to be re-encoded
+     * @param jpegQuality  compression quality between 0 and 1 for {@link ImageFormat#JPEG}
+     */
+    public record ImageOptions(
+            int maxLongSide,
+            int maxShortSide,
+            boolean grayscale,
+            ImageFormat format,
+            float jpegQuality
+    ) {
+    }
+
+    public record EncodedImage(byte[] data, MimeType mimeType, int width, int height) {
+    }
+
+    /**
+     * Returns the uploaded bytes unchanged when the model accepts the format, no scaling is needed and no conversion
+     * was requested; otherwise empty, and the caller decodes and {@link #encode encodes} the image.
+     */
+    public static Optional<EncodedImage> passThrough(byte[] imageBytes, String contentType, ImageOptions options) throws IOException {
+        if (options.grayscale() || contentType == null || !PASS_THROUGH_MIME_TYPES.contains(contentType)) {
+            return Optional.empty();
+        }
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes))) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return Optional.empty();
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (scaleFactor(width, height, options) < 1.0) {
+                    return Optional.empty();
+                }
+                return Optional.of(new EncodedImage(imageBytes, MimeType.valueOf(contentType), width, height));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public static EncodedImage encode(BufferedImage image, ImageOptions options) throws IOException {
+        BufferedImage prepared = downscale(image, scaleFactor(image.getWidth(), image.getHeight(), options));
+        if (options.grayscale()) {
+            prepared = convert(prepared, BufferedImage.TYPE_BYTE_GRAY);
+        } else if (options.format() == ImageFormat.JPEG && prepared.getColorModel().hasAlpha()) {
+            prepared = convert(prepared, BufferedImage.TYPE_INT_RGB);
+        }
+
+        byte[] data = options.format() == ImageFormat.JPEG
+                ? writeJpeg(prepared, options.jpegQuality())
+                : writeImage(prepared, options.format());
+        return new EncodedImage(data, options.format().mimeType, prepared.getWidth(), prepared.getHeight());
+    }
+
+    /**
+     * Scale factor (at most 1) that brings an image within the configured long- and short-side limits.
+     */
+    public static double scaleFactor(int width, int height, ImageOptions options) {
+        double scale = 1.0;
+        if (options.maxLongSide() > 0) {
+            scale = Math.min(scale, (double) options.maxLongSide() / Math.max(width, height));
+        }
+        if (options.maxShortSide() > 0) {
+            scale = Math.min(scale, (double) options.maxShortSide() / Math.min(width, height));
+        }
+        return scale;
+    }
+
+    /**
+     * Approximates the prompt tokens a high-detail image costs: a fixed base plus a charge per 512px tile.
+     */
+    public static int estimateVisionTokens(int width, int height) {
+        int tilesWide = (int) Math.ceil((double) width / VISION_TILE_SIZE);
+        int tilesHigh = (int) Math.ceil((double) height / VISION_TILE_SIZE);
+        return VISION_BASE_TOKENS + VISION_TOKENS_PER_TILE * tilesWide * tilesHigh;
+    }
+
+    /**
+     * Halves the image repeatedly with bilinear filtering before the final step, which keeps small print legible
+     * where a single large bilinear step would skip source pixels.
+     */
+    private static BufferedImage downscale(BufferedImage image, double scale) {
+        if (scale >= 1.0) return image;
+
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return current.getWidth() == targetWidth && current.getHeight() == targetHeight
+                ? current
+                : resize(current, targetWidth, targetHeight);
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height, resizeType(image));
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    /**
+     * Indexed and custom image types do not interpolate well, so scaling always works on packed RGB(A) or gray.
+     */
+    private static int resizeType(BufferedImage image) {
+        if (image.getColorModel().hasAlpha()) return BufferedImage.TYPE_INT_ARGB;
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) return BufferedImage.TYPE_BYTE_GRAY;
+        return BufferedImage.TYPE_INT_RGB;
+    }
+
+    private static BufferedImage convert(BufferedImage image, int type) {
+        if (image.getType() == type) return image;
+
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D graphics = converted.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return converted;
+    }
+
+    private static byte[] writeImage(BufferedImage image, ImageFormat format) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, format.formatName, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] writeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(ImageFormat.JPEG.formatName).next();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam writeParam = writer.getDefaultWriteParam();
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), writeParam);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,60 @@
+package com.app.payslip.poc.util;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * {@link MultipartFile} backed by a byte array, for files that outlive the HTTP request that uploaded them.
+ */
+public record InMemoryMultipartFile(
+        String name,
+        String originalFilename,
+        String contentType,
+        byte[] content
+) implements MultipartFile {
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return content.length == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return content.length;
+    }
+
+    @Override
+    public byte[] getBytes() {
+        return content;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public void transferTo(File destination) throws IOException {
+        Files.write(destination.toPath(), content);
+    }
+}
@@ -0,0 +1,88 @@
+package com.app.payslip.poc.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@link MultipartFile} backed by a temporary file, for uploads that are processed after the HTTP request that
+ * uploaded them has been handed off: unlike {@link InMemoryMultipartFile} it keeps nothing on the heap while the work
+ * waits to run. The owner calls {@link #delete()} once the work is done.
+ */
+@Slf4j
+public record SpooledMultipartFile(
+        String name,
+        String originalFilename,
+        String contentType,
+        Path path,
+        long size
+) implements MultipartFile {
+
+    private static final String TEMP_PREFIX = "payslip-upload-";
+    private static final String TEMP_SUFFIX = ".bin";
+
+    public static SpooledMultipartFile spool(MultipartFile file) throws IOException {
+        Path path = Files.createTempFile(TEMP_PREFIX, TEMP_SUFFIX);
+        try (InputStream content = file.getInputStream()) {
+            long size = Files.copy(content, path, StandardCopyOption.REPLACE_EXISTING);
+            return new SpooledMultipartFile(file.getName(), file.getOriginalFilename(), file.getContentType(), path, size);
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(path);
+            throw exception;
+        }
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException exception) {
+            log.debug("Could not delete spooled upload '{}': {}", path, exception.getMessage());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void transferTo(File destination) throws IOException {
+        Files.copy(path, destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
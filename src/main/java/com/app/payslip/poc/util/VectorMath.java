@@ -0,0 +1,77 @@
+package com.app.payslip.poc.util;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dot products over primitive float arrays. Uses an unrolled scalar loop, which the JIT can still auto-vectorize, and
+ * switches to the incubating Vector API kernel ({@code SimdVectorMath}, built in the {@code vectorApi} source set)
+ * when the JVM was started with {@code --add-modules jdk.incubator.vector}. The kernel is loaded reflectively, so
+ * the main sources compile without the incubator module.
+ */
+@Slf4j
+@UtilityClass
+public class VectorMath {
+
+    private static final String VECTOR_API_MODULE = "jdk.incubator.vector";
+    private static final String SIMD_KERNEL_CLASS = "com.app.payslip.poc.util.SimdVectorMath";
+
+    private static final DotKernel SIMD_KERNEL = loadSimdKernel();
+
+    /**
+     * Dot product implementation that can be swapped in at class initialization.
+     */
+    public interface DotKernel {
+        float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+    }
+
+    public static boolean isVectorApiAvailable() {
+        return SIMD_KERNEL != null;
+    }
+
+    /**
+     * Dot product of {@code length} floats of {@code a} starting at {@code aOffset} and of {@code b} starting at
+     * {@code bOffset}.
+     */
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        return SIMD_KERNEL != null
+                ? SIMD_KERNEL.dot(a, aOffset, b, bOffset, length)
+                : scalarDot(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Scales the vector to unit length in place, so cosine similarity reduces to a dot product.
+     */
+    public static void normalize(float[] vector) {
+        double norm = Math.sqrt(scalarDot(vector, 0, vector, 0, vector.length));
+        if (norm == 0.0) return;
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) (vector[i] / norm);
+        }
+    }
+
+    static float scalarDot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum0 = 0f, sum1 = 0f, sum2 = 0f, sum3 = 0f;
+        int i = 0;
+        for (int upper = length & ~3; i < upper; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    private static DotKernel loadSimdKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_API_MODULE).isEmpty()) return null;
+        try {
+            return (DotKernel) Class.forName(SIMD_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError exception) {
+            log.warn("Vector API module is present but its kernel could not be loaded, using scalar dot products: {}", exception.toString());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.app.payslip.poc.vectorstore;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Append-only JSON-lines log of document text and metadata. A {@code put} line binds a document id to a vector
+ * ordinal; a {@code delete} line is a tombstone. Replaying the log in order rebuilds the live documents.
+ */
+@Slf4j
+final class DocumentLog implements Closeable {
+
+    static final String OP_PUT = "put";
+    static final String OP_DELETE = "delete";
+
+    private static final String LOG_FILE_NAME = "documents.jsonl";
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final BufferedWriter writer;
+
+    DocumentLog(Path directory, ObjectMapper objectMapper) throws IOException {
+        this.file = Files.createDirectories(directory).resolve(LOG_FILE_NAME);
+        this.objectMapper = objectMapper;
+        truncateTornTail(file);
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Replays every readable entry; unreadable lines are skipped with a warning.
+     */
+    void replay(Consumer<Entry> consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                try {
+                    consumer.accept(objectMapper.readValue(line, Entry.class));
+                } catch (IOException exception) {
+                    log.warn("Skipping unreadable line {} of '{}': {}", lineNumber, file, exception.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Cuts a last line without its newline, left by a crash mid-write. Appending after it would otherwise glue the
+     * next entry onto the torn one and lose both.
+     */
+    private static void truncateTornTail(Path file) throws IOException {
+        if (!Files.exists(file)) return;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long end = size;
+            ByteBuffer chunk = ByteBuffer.allocate(8192);
+            scan:
+            while (end > 0) {
+                long chunkStart = Math.max(0, end - chunk.capacity());
+                chunk.clear().limit((int) (end - chunkStart));
+                channel.read(chunk, chunkStart);
+                for (int i = chunk.position() - 1; i >= 0; i--) {
+                    if (chunk.get(i) == '\n') {
+                        end = chunkStart + i + 1;
+                        break scan;
+                    }
+                }
+                end = chunkStart;
+            }
+            if (end < size) {
+                log.warn("Truncating torn last entry of '{}' ({} bytes)", file, size - end);
+                channel.truncate(end);
+            }
+        }
+    }
+
+    void append(Entry entry) throws IOException {
+        writer.write(objectMapper.writeValueAsString(entry));
+        writer.newLine();
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Entry(String op, String id, Integer ordinal, String content, Map<String, Object> metadata) {
+
+        static Entry put(String id, int ordinal, String content, Map<String, Object> metadata) {
+            return new Entry(OP_PUT, id, ordinal, content, metadata);
+        }
+
+        static Entry delete(String id) {
+            return new Entry(OP_DELETE, id, null, null, null);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.app.payslip.poc.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * Evaluates the portable {@link Filter.Expression} trees built by {@code FilterExpressionBuilder} (or parsed from the
+ * text syntax) against a document's metadata map.
+ * <p>
+ * Keys are looked up as whole metadata names, so dotted keys such as {@code period.monthKey} match the flat metadata
+ * written by the index service. Numbers compare by value regardless of their boxed type; everything else compares by
+ * string form.
+ */
+final class FilterExpressionEvaluator {
+
+    private FilterExpressionEvaluator() {
+    }
+
+    static boolean matches(Filter.Expression expression, Map<String, Object> metadata) {
+        if (expression == null) return true;
+
+        return switch (expression.type()) {
+            case AND -> matches(operand(expression.left()), metadata) && matches(operand(expression.right()), metadata);
+            case OR -> matches(operand(expression.left()), metadata) || matches(operand(expression.right()), metadata);
+            case NOT -> !matches(operand(expression.left()), metadata);
+            case EQ -> valueEquals(metadataValue(expression, metadata), filterValue(expression));
+            case NE -> !valueEquals(metadataValue(expression, metadata), filterValue(expression));
+            case GT -> inRange(expression, metadata, comparison -> comparison > 0);
+            case GTE -> inRange(expression, metadata, comparison -> comparison >= 0);
+            case LT -> inRange(expression, metadata, comparison -> comparison < 0);
+            case LTE -> inRange(expression, metadata, comparison -> comparison <= 0);
+            case IN -> anyEquals(metadataValue(expression, metadata), filterValue(expression));
+            case NIN -> !anyEquals(metadataValue(expression, metadata), filterValue(expression));
+            default -> throw new UnsupportedOperationException("Unsupported filter operation " + expression.type());
+        };
+    }
+
+    private static Filter.Expression operand(Filter.Operand operand) {
+        if (operand instanceof Filter.Expression expression) return expression;
+        if (operand instanceof Filter.Group group) return group.content();
+        throw new IllegalArgumentException("Expected a nested expression but got " + operand);
+    }
+
+    private static Object metadataValue(Filter.Expression expression, Map<String, Object> metadata) {
+        if (!(expression.left() instanceof Filter.Key key)) {
+            throw new IllegalArgumentException("Expected a metadata key on the left of " + expression);
+        }
+        return metadata.get(unquote(key.key()));
+    }
+
+    private static Object filterValue(Filter.Expression expression) {
+        if (!(expression.right() instanceof Filter.Value value)) {
+            throw new IllegalArgumentException("Expected a value on the right of " + expression);
+        }
+        return value.value();
+    }
+
+    private static boolean valueEquals(Object actual, Object expected) {
+        if (actual == null || expected == null) return actual == expected;
+        if (actual instanceof Number actualNumber && expected instanceof Number expectedNumber) {
+            return Double.compare(actualNumber.doubleValue(), expectedNumber.doubleValue()) == 0;
+        }
+        return Objects.equals(String.valueOf(actual), String.valueOf(expected));
+    }
+
+    private static boolean anyEquals(Object actual, Object expected) {
+        if (!(expected instanceof Collection<?> values)) return valueEquals(actual, expected);
+        return values.stream().anyMatch(value -> valueEquals(actual, value));
+    }
+
+    /**
+     * Range filters never match documents without the key.
+     */
+    private static boolean inRange(Filter.Expression expression, Map<String, Object> metadata, IntPredicate accept) {
+        Object actual = metadataValue(expression, metadata);
+        Object expected = filterValue(expression);
+        if (actual == null || expected == null) return false;
+        if (actual instanceof Number actualNumber && expected instanceof Number expectedNumber) {
+            return accept.test(Double.compare(actualNumber.doubleValue(), expectedNumber.doubleValue()));
+        }
+        return accept.test(String.valueOf(actual).compareTo(String.valueOf(expected)));
+    }
+
+    static String unquote(String key) {
+        if (key.length() >= 2 && (key.startsWith("'") && key.endsWith("'") || key.startsWith("\"") && key.endsWith("\""))) {
+            return key.substring(1, key.length() - 1);
+        }
+        return key;
+    }
+}
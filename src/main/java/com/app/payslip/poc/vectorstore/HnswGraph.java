@@ -0,0 +1,222 @@
+package com.app.payslip.poc.vectorstore;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph over the vectors in a {@link VectorSegmentStorage}.
+ * <p>
+ * Nodes are vector ordinals and similarity is the dot product of unit-length vectors. Deleted or filtered-out nodes
+ * stay in the graph for navigation and are only skipped when collecting results. Not thread-safe; the store
+ * serializes writers against readers.
+ */
+final class HnswGraph {
+
+    private final VectorSegmentStorage vectors;
+    private final int maxConnections;
+    private final int maxConnectionsLayerZero;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    /**
+     * {@code links.get(node)[level]} holds the neighbours of {@code node} on {@code level}.
+     */
+    private final List<int[][]> links = new ArrayList<>();
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    HnswGraph(VectorSegmentStorage vectors, int maxConnections, int efConstruction) {
+        this.vectors = vectors;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsLayerZero = maxConnections * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(maxConnections);
+    }
+
+    int size() {
+        return links.size();
+    }
+
+    /**
+     * Links the next vector ordinal into the graph. Ordinals must be inserted in order.
+     */
+    void insert(int node) {
+        if (node != links.size()) {
+            throw new IllegalStateException("Expected ordinal " + links.size() + " but got " + node);
+        }
+
+        int level = randomLevel();
+        int[][] nodeLinks = new int[level + 1][];
+        Arrays.fill(nodeLinks, new int[0]);
+        links.add(nodeLinks);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLevel = level;
+            return;
+        }
+
+        float[] vector = vectors.read(node);
+        int current = entryPoint;
+        for (int layer = topLevel; layer > level; layer--) {
+            current = greedyClosest(vector, current, layer);
+        }
+
+        for (int layer = Math.min(level, topLevel); layer >= 0; layer--) {
+            List<Candidate> candidates = searchLayer(vector, current, efConstruction, layer);
+            int[] neighbours = selectNeighbours(candidates, maxConnections(layer));
+            nodeLinks[layer] = neighbours;
+            for (int neighbour : neighbours) {
+                connect(neighbour, node, layer);
+            }
+            current = candidates.get(0).node();
+        }
+
+        if (level > topLevel) {
+            topLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Approximate top-{@code k} search; only nodes accepted by {@code accept} are returned, best first.
+     */
+    List<Candidate> search(float[] query, int k, int ef, IntPredicate accept) {
+        if (entryPoint < 0) return List.of();
+
+        int current = entryPoint;
+        for (int layer = topLevel; layer > 0; layer--) {
+            current = greedyClosest(query, current, layer);
+        }
+
+        List<Candidate> results = new ArrayList<>();
+        for (Candidate candidate : searchLayer(query, current, Math.max(ef, k), 0)) {
+            if (accept.test(candidate.node())) {
+                results.add(candidate);
+                if (results.size() == k) break;
+            }
+        }
+        return results;
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int best = start;
+        float bestSimilarity = vectors.dot(query, start);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbour : links.get(best)[layer]) {
+                float similarity = vectors.dot(query, neighbour);
+                if (similarity > bestSimilarity) {
+                    best = neighbour;
+                    bestSimilarity = similarity;
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Beam search on one layer; returns up to {@code ef} candidates, most similar first.
+     */
+    private List<Candidate> searchLayer(float[] query, int start, int ef, int layer) {
+        BitSet visited = new BitSet(links.size());
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(Comparator.comparingDouble(Candidate::similarity).reversed());
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::similarity));
+
+        Candidate first = new Candidate(start, vectors.dot(query, start));
+        visited.set(start);
+        frontier.add(first);
+        best.add(first);
+
+        while (!frontier.isEmpty()) {
+            Candidate closest = frontier.poll();
+            if (best.size() >= ef && closest.similarity() < best.peek().similarity()) break;
+
+            int[][] closestLinks = links.get(closest.node());
+            if (layer >= closestLinks.length) continue;
+            for (int neighbour : closestLinks[layer]) {
+                if (visited.get(neighbour)) continue;
+                visited.set(neighbour);
+
+                Candidate candidate = new Candidate(neighbour, vectors.dot(query, neighbour));
+                if (best.size() < ef || candidate.similarity() > best.peek().similarity()) {
+                    frontier.add(candidate);
+                    best.add(candidate);
+                    if (best.size() > ef) best.poll();
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(best);
+        sorted.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+        return sorted;
+    }
+
+    /**
+     * Neighbour selection heuristic from the HNSW paper: a candidate is kept when it is closer to the new node than to
+     * any neighbour kept so far, which spreads links across clusters. Remaining slots are filled with the closest
+     * pruned candidates.
+     */
+    private int[] selectNeighbours(List<Candidate> candidates, int limit) {
+        List<Candidate> selected = new ArrayList<>(limit);
+        List<float[]> selectedVectors = new ArrayList<>(limit);
+        List<Candidate> pruned = new ArrayList<>();
+
+        for (Candidate candidate : candidates) {
+            if (selected.size() == limit) break;
+            boolean diverse = true;
+            for (float[] selectedVector : selectedVectors) {
+                if (vectors.dot(selectedVector, candidate.node()) > candidate.similarity()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+                selectedVectors.add(vectors.read(candidate.node()));
+            } else {
+                pruned.add(candidate);
+            }
+        }
+        for (Candidate candidate : pruned) {
+            if (selected.size() == limit) break;
+            selected.add(candidate);
+        }
+        return selected.stream().mapToInt(Candidate::node).toArray();
+    }
+
+    private void connect(int node, int neighbour, int layer) {
+        int[][] nodeLinks = links.get(node);
+        int[] existing = nodeLinks[layer];
+        int[] extended = Arrays.copyOf(existing, existing.length + 1);
+        extended[existing.length] = neighbour;
+
+        int limit = maxConnections(layer);
+        if (extended.length <= limit) {
+            nodeLinks[layer] = extended;
+            return;
+        }
+
+        float[] nodeVector = vectors.read(node);
+        List<Candidate> candidates = new ArrayList<>(extended.length);
+        for (int candidate : extended) {
+            candidates.add(new Candidate(candidate, vectors.dot(nodeVector, candidate)));
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+        nodeLinks[layer] = selectNeighbours(candidates, limit);
+    }
+
+    private int maxConnections(int layer) {
+        return layer == 0 ? maxConnectionsLayerZero : maxConnections;
+    }
+
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    record Candidate(int node, float similarity) {
+    }
+}
@@ -0,0 +1,330 @@
+package com.app.payslip.poc.vectorstore;
+
+import com.app.payslip.poc.config.LocalVectorStoreProperties;
+import com.app.payslip.poc.service.DocumentLookup;
+import com.app.payslip.poc.util.VectorMath;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Embedded {@link VectorStore} for single-node deployments, selected with the {@code local-vector-store} profile.
+ * <p>
+ * Vectors live in memory-mapped segment files, document text and metadata in an append-only JSON-lines log with
+ * tombstones, and an HNSW graph over the vectors answers similarity searches. The graph is rebuilt from the segments
+ * on startup. Searches whose metadata filter leaves few candidates (such as one employee's month) are answered
+ * exactly instead, which is both faster and complete.
+ * <p>
+ * The metadata keys the services filter on ({@code payslip.local-vector-store.indexed-metadata-keys}) are kept in an
+ * inverted index. Filters are first narrowed through it, so the full filter is only evaluated on documents that can
+ * match rather than on every stored document.
+ * <p>
+ * As on the Elasticsearch store, the similarity threshold of a search applies to the raw cosine and returned scores
+ * use the {@code (1 + cosine) / 2} scale of {@code _score}. Documents are embedded through the same batching entry
+ * point {@code ElasticsearchVectorStore} uses, so both stores embed the same formatted content. Readers run
+ * concurrently; writers are serialized.
+ */
+@Slf4j
+public class LocalVectorStore implements VectorStore, DocumentLookup, Closeable {
+
+    private static final String METADATA_DISTANCE = "distance";
+
+    private final EmbeddingModel embeddingModel;
+    private final BatchingStrategy batchingStrategy = new TokenCountBatchingStrategy();
+    private final LocalVectorStoreProperties properties;
+    private final VectorSegmentStorage vectors;
+    private final DocumentLog documentLog;
+    private final HnswGraph graph;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Live document per vector ordinal; {@code null} for deleted or replaced documents.
+     */
+    private final List<StoredDocument> documentsByOrdinal = new ArrayList<>();
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private final MetadataIndex metadataIndex;
+
+    public LocalVectorStore(EmbeddingModel embeddingModel, LocalVectorStoreProperties properties, ObjectMapper objectMapper) throws IOException {
+        this.embeddingModel = embeddingModel;
+        this.properties = properties;
+
+        Path directory = Path.of(properties.getDirectory());
+        this.vectors = new VectorSegmentStorage(directory, properties.getDimensions());
+        this.documentLog = new DocumentLog(directory, objectMapper);
+        this.graph = new HnswGraph(vectors, properties.getMaxConnections(), properties.getEfConstruction());
+        this.metadataIndex = new MetadataIndex(properties.getIndexedMetadataKeys());
+
+        long startNanos = System.nanoTime();
+        for (int ordinal = 0; ordinal < vectors.size(); ordinal++) {
+            documentsByOrdinal.add(null);
+            graph.insert(ordinal);
+        }
+        documentLog.replay(this::apply);
+        log.info("Local vector store at '{}' opened with {} documents ({} vectors) in {} ms",
+                directory.toAbsolutePath(), ordinalsById.size(), vectors.size(), (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        if (documents.isEmpty()) return;
+
+        List<float[]> embeddings = embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(), batchingStrategy);
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                float[] vector = embeddings.get(i).clone();
+                VectorMath.normalize(vector);
+
+                int ordinal = vectors.append(vector);
+                documentsByOrdinal.add(null);
+                graph.insert(ordinal);
+
+                DocumentLog.Entry entry = DocumentLog.Entry.put(document.getId(), ordinal, document.getText(), document.getMetadata());
+                documentLog.append(entry);
+                apply(entry);
+            }
+            vectors.force();
+            documentLog.flush();
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Failed to add documents to the local vector store", exception);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idList) {
+                if (!ordinalsById.containsKey(id)) continue;
+                DocumentLog.Entry entry = DocumentLog.Entry.delete(id);
+                documentLog.append(entry);
+                apply(entry);
+            }
+            documentLog.flush();
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Failed to delete documents from the local vector store", exception);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        List<String> ids = new ArrayList<>();
+        scan(filterExpression, document -> ids.add(document.getId()));
+        delete(ids);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return similaritySearch(embeddingModel.embed(request.getQuery()), request.getTopK(),
+                request.getSimilarityThreshold(), request.getFilterExpression());
+    }
+
+    @Override
+    public List<Document> similaritySearch(float[] queryVector, int topK, double similarityThreshold, Filter.Expression filter) {
+        float[] query = queryVector.clone();
+        VectorMath.normalize(query);
+
+        lock.readLock().lock();
+        try {
+            List<HnswGraph.Candidate> candidates = findCandidates(query, topK, filter);
+
+            List<Document> results = new ArrayList<>(candidates.size());
+            for (HnswGraph.Candidate candidate : candidates) {
+                if (candidate.similarity() < similarityThreshold) continue;
+                results.add(documentsByOrdinal.get(candidate.node()).toDocument((1.0 + candidate.similarity()) / 2.0));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> existingIds(Collection<String> ids) {
+        lock.readLock().lock();
+        try {
+            Set<String> existing = new HashSet<>();
+            for (String id : ids) {
+                if (ordinalsById.containsKey(id)) existing.add(id);
+            }
+            return existing;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Document> findById(String docId) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(ordinalsById.get(docId))
+                    .map(documentsByOrdinal::get)
+                    .map(storedDocument -> storedDocument.toDocument(null));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Document> findByIds(Collection<String> docIds) {
+        Map<String, Document> documents = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String docId : docIds) {
+                Optional.ofNullable(ordinalsById.get(docId))
+                        .map(documentsByOrdinal::get)
+                        .ifPresent(storedDocument -> documents.put(docId, storedDocument.toDocument(null)));
+            }
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Collects the matches under the read lock and hands them to the consumer afterwards, so a slow consumer never
+     * blocks writers.
+     */
+    @Override
+    public void scan(Filter.Expression filter, Consumer<Document> consumer) {
+        List<Document> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int ordinal : matchingOrdinals(filter)) {
+                matches.add(documentsByOrdinal.get(ordinal).toDocument(null));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.forEach(consumer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            documentLog.close();
+            vectors.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<HnswGraph.Candidate> findCandidates(float[] query, int topK, Filter.Expression filter) {
+        int liveDocuments = ordinalsById.size();
+        if (liveDocuments == 0 || topK <= 0) return List.of();
+
+        if (filter == null) {
+            return liveDocuments <= properties.getExactSearchThreshold()
+                    ? exactSearch(query, topK, ordinalsById.values())
+                    : graph.search(query, topK, properties.getEfSearch(), ordinal -> documentsByOrdinal.get(ordinal) != null);
+        }
+
+        List<Integer> matching = matchingOrdinals(filter);
+        if (matching.size() <= properties.getExactSearchThreshold()) {
+            return exactSearch(query, topK, matching);
+        }
+
+        // Widen the beam in proportion to how much of the graph the filter rejects.
+        int ef = (int) Math.min(liveDocuments, Math.max(properties.getEfSearch(), (long) topK * liveDocuments / matching.size()));
+        Set<Integer> accepted = new HashSet<>(matching);
+        IntPredicate accept = accepted::contains;
+        return graph.search(query, topK, ef, accept);
+    }
+
+    /**
+     * Ordinals of the live documents matching the filter. When the inverted index can narrow the filter, only its
+     * candidates are evaluated; otherwise every document is.
+     */
+    private List<Integer> matchingOrdinals(Filter.Expression filter) {
+        BitSet candidates = metadataIndex.candidates(filter);
+        List<Integer> matching = new ArrayList<>();
+        if (candidates != null) {
+            for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+                addIfMatching(matching, ordinal, filter);
+            }
+        } else {
+            for (int ordinal = 0; ordinal < documentsByOrdinal.size(); ordinal++) {
+                addIfMatching(matching, ordinal, filter);
+            }
+        }
+        return matching;
+    }
+
+    private void addIfMatching(List<Integer> matching, int ordinal, Filter.Expression filter) {
+        StoredDocument storedDocument = documentsByOrdinal.get(ordinal);
+        if (storedDocument != null && FilterExpressionEvaluator.matches(filter, storedDocument.metadata())) {
+            matching.add(ordinal);
+        }
+    }
+
+    private List<HnswGraph.Candidate> exactSearch(float[] query, int topK, Collection<Integer> ordinals) {
+        PriorityQueue<HnswGraph.Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(HnswGraph.Candidate::similarity));
+        for (int ordinal : ordinals) {
+            best.add(new HnswGraph.Candidate(ordinal, vectors.dot(query, ordinal)));
+            if (best.size() > topK) best.poll();
+        }
+        List<HnswGraph.Candidate> sorted = new ArrayList<>(best);
+        sorted.sort(Comparator.comparingDouble(HnswGraph.Candidate::similarity).reversed());
+        return sorted;
+    }
+
+    /**
+     * Applies a log entry to the in-memory view; used both when replaying the log and when writing.
+     */
+    private void apply(DocumentLog.Entry entry) {
+        Integer previousOrdinal = ordinalsById.remove(entry.id());
+        if (previousOrdinal != null) {
+            metadataIndex.remove(previousOrdinal, documentsByOrdinal.get(previousOrdinal).metadata());
+            documentsByOrdinal.set(previousOrdinal, null);
+        }
+        if (!DocumentLog.OP_PUT.equals(entry.op())) return;
+
+        if (entry.ordinal() == null || entry.ordinal() >= documentsByOrdinal.size()) {
+            log.warn("Ignoring document '{}' that points at missing vector {}", entry.id(), entry.ordinal());
+            return;
+        }
+        Map<String, Object> metadata = Optional.ofNullable(entry.metadata()).orElse(Map.of());
+        documentsByOrdinal.set(entry.ordinal(), new StoredDocument(entry.id(), entry.content(), Collections.unmodifiableMap(new HashMap<>(metadata))));
+        ordinalsById.put(entry.id(), entry.ordinal());
+        metadataIndex.add(entry.ordinal(), metadata);
+    }
+
+    private record StoredDocument(String id, String content, Map<String, Object> metadata) {
+
+        private Document toDocument(Double score) {
+            Map<String, Object> documentMetadata = new HashMap<>(metadata);
+            if (score != null) {
+                documentMetadata.put(METADATA_DISTANCE, 1.0 - score);
+            }
+            return Document.builder()
+                    .id(id)
+                    .text(Optional.ofNullable(content).orElse(""))
+                    .metadata(documentMetadata)
+                    .score(score)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.app.payslip.poc.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from metadata value to vector ordinals for a fixed set of keys.
+ * <p>
+ * {@link #candidates} turns a filter into a superset of the ordinals it can match, or {@code null} when the filter
+ * cannot be narrowed (a clause on an unindexed key, a negation or a range), so callers always evaluate the complete
+ * filter on the candidates. Values are indexed by string form and only string filter values are looked up, which is
+ * exactly how {@link FilterExpressionEvaluator} compares a string against any metadata value. Not thread-safe; the
+ * store serializes writers against readers.
+ */
+final class MetadataIndex {
+
+    private final Map<String, Map<String, BitSet>> ordinalsByValueByKey = new HashMap<>();
+
+    MetadataIndex(Collection<String> keys) {
+        keys.forEach(key -> ordinalsByValueByKey.put(key, new HashMap<>()));
+    }
+
+    void add(int ordinal, Map<String, Object> metadata) {
+        ordinalsByValueByKey.forEach((key, ordinalsByValue) -> {
+            Object value = metadata.get(key);
+            if (value != null) {
+                ordinalsByValue.computeIfAbsent(String.valueOf(value), ignored -> new BitSet()).set(ordinal);
+            }
+        });
+    }
+
+    void remove(int ordinal, Map<String, Object> metadata) {
+        ordinalsByValueByKey.forEach((key, ordinalsByValue) -> {
+            Object value = metadata.get(key);
+            if (value == null) return;
+            String stringValue = String.valueOf(value);
+            BitSet ordinals = ordinalsByValue.get(stringValue);
+            if (ordinals == null) return;
+            ordinals.clear(ordinal);
+            if (ordinals.isEmpty()) ordinalsByValue.remove(stringValue);
+        });
+    }
+
+    /**
+     * Ordinals that may match the filter, or {@code null} when every document has to be evaluated. The returned set is
+     * a fresh copy the caller may modify.
+     */
+    BitSet candidates(Filter.Expression expression) {
+        if (expression == null) return null;
+
+        return switch (expression.type()) {
+            case AND -> intersect(candidates(operand(expression.left())), candidates(operand(expression.right())));
+            case OR -> union(candidates(operand(expression.left())), candidates(operand(expression.right())));
+            case EQ -> lookup(expression, value(expression));
+            case IN -> value(expression) instanceof Collection<?> values ? lookup(expression, values) : lookup(expression, value(expression));
+            default -> null;
+        };
+    }
+
+    private BitSet lookup(Filter.Expression expression, Object value) {
+        return value instanceof String ? lookup(expression, List.of(value)) : null;
+    }
+
+    private BitSet lookup(Filter.Expression expression, Collection<?> values) {
+        if (!(expression.left() instanceof Filter.Key key)) return null;
+        Map<String, BitSet> ordinalsByValue = ordinalsByValueByKey.get(FilterExpressionEvaluator.unquote(key.key()));
+        if (ordinalsByValue == null) return null;
+
+        BitSet result = new BitSet();
+        for (Object value : values) {
+            if (!(value instanceof String stringValue)) return null;
+            BitSet ordinals = ordinalsByValue.get(stringValue);
+            if (ordinals != null) result.or(ordinals);
+        }
+        return result;
+    }
+
+    private static BitSet intersect(BitSet left, BitSet right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        left.and(right);
+        return left;
+    }
+
+    private static BitSet union(BitSet left, BitSet right) {
+        if (left == null || right == null) return null;
+        left.or(right);
+        return left;
+    }
+
+    private static Object value(Filter.Expression expression) {
+        return expression.right() instanceof Filter.Value value ? value.value() : null;
+    }
+
+    private static Filter.Expression operand(Filter.Operand operand) {
+        if (operand instanceof Filter.Expression expression) return expression;
+        if (operand instanceof Filter.Group group) return group.content();
+        throw new IllegalArgumentException("Expected a nested expression but got " + operand);
+    }
+}
@@ -0,0 +1,168 @@
+package com.app.payslip.poc.vectorstore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only storage of fixed-width float vectors in memory-mapped segment files.
+ * <p>
+ * Each segment file ({@code vectors-00000.seg}, ...) starts with a 16-byte header (magic, format version,
+ * dimensions, vector count) followed by {@link #VECTORS_PER_SEGMENT} little-endian float32 slots. A vector's
+ * ordinal is its position across all segments. Vectors are read straight from the mapping, so the page cache rather
+ * than the heap holds them.
+ */
+final class VectorSegmentStorage implements Closeable {
+
+    static final int VECTORS_PER_SEGMENT = 8_192;
+
+    private static final int MAGIC = 0x50564543; // "PVEC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int COUNT_OFFSET = 12;
+    private static final String SEGMENT_PREFIX = "vectors-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int dimensions;
+    private final List<Segment> segments = new ArrayList<>();
+    private int size;
+
+    VectorSegmentStorage(Path directory, int dimensions) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.dimensions = dimensions;
+
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(this.directory)) {
+            segmentFiles = files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path segmentFile : segmentFiles) {
+            Segment segment = openSegment(segmentFile, false);
+            segments.add(segment);
+            size += segment.count();
+            if (segment.count() < VECTORS_PER_SEGMENT) break;
+        }
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends the vector and returns its ordinal. The vector count in the header is only bumped after the vector is
+     * written, so a crash never exposes a half-written slot.
+     */
+    int append(float[] vector) throws IOException {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+
+        int ordinal = size;
+        int slot = ordinal % VECTORS_PER_SEGMENT;
+        if (slot == 0 && ordinal / VECTORS_PER_SEGMENT == segments.size()) {
+            segments.add(openSegment(directory.resolve(segmentFileName(segments.size())), true));
+        }
+
+        Segment segment = segments.get(ordinal / VECTORS_PER_SEGMENT);
+        segment.floats().put(slot * dimensions, vector);
+        segment.buffer().putInt(COUNT_OFFSET, slot + 1);
+        size++;
+        return ordinal;
+    }
+
+    /**
+     * Dot product of {@code query} with the stored vector, read directly from the mapping.
+     */
+    float dot(float[] query, int ordinal) {
+        FloatBuffer floats = segments.get(ordinal / VECTORS_PER_SEGMENT).floats();
+        int offset = (ordinal % VECTORS_PER_SEGMENT) * dimensions;
+        float sum0 = 0f, sum1 = 0f, sum2 = 0f, sum3 = 0f;
+        int i = 0;
+        for (int upper = dimensions & ~3; i < upper; i += 4) {
+            sum0 += query[i] * floats.get(offset + i);
+            sum1 += query[i + 1] * floats.get(offset + i + 1);
+            sum2 += query[i + 2] * floats.get(offset + i + 2);
+            sum3 += query[i + 3] * floats.get(offset + i + 3);
+        }
+        for (; i < dimensions; i++) {
+            sum0 += query[i] * floats.get(offset + i);
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    float[] read(int ordinal) {
+        float[] vector = new float[dimensions];
+        segments.get(ordinal / VECTORS_PER_SEGMENT).floats().get((ordinal % VECTORS_PER_SEGMENT) * dimensions, vector);
+        return vector;
+    }
+
+    /**
+     * Flushes written vectors to disk.
+     */
+    void force() {
+        segments.forEach(segment -> segment.buffer().force());
+    }
+
+    @Override
+    public void close() {
+        force();
+        segments.clear();
+    }
+
+    private Segment openSegment(Path file, boolean create) throws IOException {
+        long bytes = HEADER_BYTES + (long) VECTORS_PER_SEGMENT * dimensions * Float.BYTES;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (create) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, FORMAT_VERSION);
+                buffer.putInt(8, dimensions);
+                buffer.putInt(COUNT_OFFSET, 0);
+            } else {
+                verifyHeader(file, buffer);
+            }
+            FloatBuffer floats = buffer.slice(HEADER_BYTES, buffer.capacity() - HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer();
+            return new Segment(buffer, floats);
+        }
+    }
+
+    private void verifyHeader(Path file, MappedByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("'" + file + "' is not a vector segment of format version " + FORMAT_VERSION);
+        }
+        if (buffer.getInt(8) != dimensions) {
+            throw new IOException("'" + file + "' holds " + buffer.getInt(8) + "-dimensional vectors, expected " + dimensions);
+        }
+    }
+
+    private static String segmentFileName(int index) {
+        return SEGMENT_PREFIX + "%05d".formatted(index) + SEGMENT_SUFFIX;
+    }
+
+    private record Segment(MappedByteBuffer buffer, FloatBuffer floats) {
+
+        private int count() {
+            return buffer.getInt(COUNT_OFFSET);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.app.payslip.poc.factstore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongOpenHashSetTests {
+
+    @Test
+    void tracksZeroSeparatelyFromTheEmptySlotMarker() {
+        LongOpenHashSet set = new LongOpenHashSet();
+
+        assertThat(set.contains(0L)).isFalse();
+        assertThat(set.add(0L)).isTrue();
+        assertThat(set.add(0L)).isFalse();
+        assertThat(set.contains(0L)).isTrue();
+        assertThat(set.contains(1L)).isFalse();
+    }
+
+    @Test
+    void growsFromASmallInitialCapacity() {
+        LongOpenHashSet set = new LongOpenHashSet(3);
+        for (long value = 1; value <= 100; value++) {
+            assertThat(set.add(value)).isTrue();
+        }
+
+        for (long value = 1; value <= 100; value++) {
+            assertThat(set.contains(value)).isTrue();
+        }
+        assertThat(set.contains(101L)).isFalse();
+    }
+
+    @Test
+    void keepsEveryValueAcrossResizes() {
+        LongOpenHashSet set = new LongOpenHashSet();
+        Random random = new Random(42);
+        Set<Long> expected = new HashSet<>();
+        set.add(0L);
+        expected.add(0L);
+        while (expected.size() < 10_000) {
+            long value = random.nextLong();
+            assertThat(set.add(value)).isEqualTo(expected.add(value));
+        }
+
+        for (long value : expected) {
+            assertThat(set.contains(value)).isTrue();
+            assertThat(set.add(value)).isFalse();
+        }
+        for (int i = 0; i < 1_000; i++) {
+            long value = random.nextLong();
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+    }
+
+    @Test
+    void handlesValuesThatShareASlot() {
+        LongOpenHashSet set = new LongOpenHashSet();
+        for (long value = 1; value <= 3_000; value++) {
+            set.add(value << 32);
+        }
+
+        for (long value = 1; value <= 3_000; value++) {
+            assertThat(set.contains(value << 32)).isTrue();
+            assertThat(set.contains((value << 32) + 1)).isFalse();
+        }
+    }
+}
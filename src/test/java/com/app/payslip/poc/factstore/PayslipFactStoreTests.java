@@ -0,0 +1,207 @@
+package com.app.payslip.poc.factstore;
+
+import com.app.payslip.poc.config.FactStoreProperties;
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
+import com.app.payslip.poc.model.PayslipFactAggregateDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class PayslipFactStoreTests {
+
+    private static final String ZERO_KEY_SHA = "0".repeat(64);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRowsAfterReopening() throws IOException {
+        PayslipFactStore store = open();
+        assertThat(store.record(sha(1), payslip("E1", "100", "2024-01-31", "2000.00"))).isTrue();
+        assertThat(store.record(sha(2), payslip("E1", "101", "2024-01-31", "2100.00"))).isTrue();
+        assertThat(store.record(sha(3), payslip("E2", "200", "2024-02-29", "3000.00"))).isTrue();
+        List<PayslipFactAggregateDTO> before = store.aggregateByEmployerAndMonth(PayslipFactStore.Metric.NET, null, null, null);
+        store.close();
+
+        PayslipFactStore reopened = open();
+
+        assertThat(reopened.size()).isEqualTo(3);
+        assertThat(reopened.aggregateByEmployerAndMonth(PayslipFactStore.Metric.NET, null, null, null)).isEqualTo(before);
+        reopened.close();
+    }
+
+    @Test
+    void cutsOffATornRowAndKeepsAppendingAfterIt() throws IOException {
+        PayslipFactStore store = open();
+        store.record(sha(1), payslip("E1", "100", "2024-01-31", "2000.00"));
+        store.record(sha(2), payslip("E1", "101", "2024-01-31", "2100.00"));
+        store.close();
+        long completeLength = Files.size(file());
+
+        store = open();
+        store.record(sha(3), payslip("E1", "100", "2024-02-29", "2200.00"));
+        store.close();
+        assertThat(Files.size(file())).isGreaterThan(completeLength + 50);
+        try (FileChannel channel = FileChannel.open(file(), StandardOpenOption.WRITE)) {
+            channel.truncate(completeLength + 50);
+        }
+
+        store = open();
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(Files.size(file())).isEqualTo(completeLength);
+        assertThat(store.record(sha(4), payslip("E2", "200", "2024-02-29", "3000.00"))).isTrue();
+        store.close();
+
+        PayslipFactStore reopened = open();
+        assertThat(reopened.size()).isEqualTo(3);
+        assertThat(reopened.aggregateByEmployerAndMonth(PayslipFactStore.Metric.NET, null, null, null))
+                .extracting(PayslipFactAggregateDTO::employerNumber, PayslipFactAggregateDTO::monthKey, PayslipFactAggregateDTO::payslipCount)
+                .containsExactly(
+                        tuple("E1", "2024-01", 2L),
+                        tuple("E2", "2024-02", 1L));
+        reopened.close();
+    }
+
+    @Test
+    void aggregatesPerEmployerAndMonth() throws IOException {
+        PayslipFactStore store = open();
+        store.record(sha(1), payslip("E1", "100", "2024-01-31", "2000.00", 20, 1));
+        store.record(sha(2), payslip("E1", "101", "2024-01-31", "2100.00", 18, 2));
+        store.record(sha(3), payslip("E1", "100", "2024-02-29", "2050.50"));
+        store.record(sha(4), payslip("E2", "200", "2024-01-31", "3000.00"));
+        store.record(sha(5), payslip("E2", "201", null, "9999.00"));
+
+        List<PayslipFactAggregateDTO> all = store.aggregateByEmployerAndMonth(PayslipFactStore.Metric.NET, null, null, null);
+        List<PayslipFactAggregateDTO> january = store.aggregateByEmployerAndMonth(
+                PayslipFactStore.Metric.NET, "E1", YearMonth.of(2024, 1), YearMonth.of(2024, 1));
+
+        assertThat(all).extracting(PayslipFactAggregateDTO::employerNumber, PayslipFactAggregateDTO::monthKey)
+                .containsExactly(
+                        tuple("E1", "2024-01"),
+                        tuple("E1", "2024-02"),
+                        tuple("E2", "2024-01"));
+        assertThat(january).hasSize(1);
+        PayslipFactAggregateDTO aggregate = january.get(0);
+        assertThat(aggregate.payslipCount()).isEqualTo(2);
+        assertThat(aggregate.employeeCount()).isEqualTo(2);
+        assertThat(aggregate.mealVoucherCount()).isEqualTo(38);
+        assertThat(aggregate.benefitCount()).isEqualTo(3);
+        assertThat(aggregate.average()).isEqualByComparingTo("2050.00");
+        assertThat(aggregate.total()).isEqualByComparingTo("4100.00");
+        assertThat(aggregate.min()).isEqualByComparingTo("2000.00");
+        assertThat(aggregate.max()).isEqualByComparingTo("2100.00");
+        assertThat(store.aggregateByEmployerAndMonth(PayslipFactStore.Metric.NET, "unknown", null, null)).isEmpty();
+        store.close();
+    }
+
+    @Test
+    void countsEachEmployeeOncePerGroup() throws IOException {
+        PayslipFactStore store = open();
+        store.record(sha(1), payslip("E1", "100", "2024-01-01", "1000.00"));
+        store.record(sha(2), payslip("E1", "100", "2024-01-31", "500.00"));
+        store.record(sha(3), payslip("E1", "101", "2024-01-31", "2000.00"));
+
+        assertThat(store.aggregateByEmployerAndMonth(PayslipFactStore.Metric.NET, null, null, null))
+                .extracting(PayslipFactAggregateDTO::payslipCount, PayslipFactAggregateDTO::employeeCount)
+                .containsExactly(tuple(3L, 2L));
+        store.close();
+    }
+
+    @Test
+    void keepsTheLogReadableAfterAnInterruptedWrite() throws IOException {
+        PayslipFactStore store = open();
+        assertThat(store.record(sha(1), payslip("E1", "100", "2024-01-31", "2000.00"))).isTrue();
+
+        // An interrupted thread closes the file channel on its next write, as a cancelled extraction would.
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(() -> store.record(sha(2), payslip("E9", "900", "2024-01-31", "9000.00")))
+                    .isInstanceOf(UncheckedIOException.class);
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertThat(store.record(sha(3), payslip("E2", "200", "2024-02-29", "3000.00"))).isTrue();
+        assertThat(store.record(sha(2), payslip("E9", "900", "2024-01-31", "9000.00"))).isTrue();
+        store.close();
+
+        PayslipFactStore reopened = open();
+        assertThat(reopened.size()).isEqualTo(3);
+        assertThat(reopened.aggregateByEmployerAndMonth(PayslipFactStore.Metric.NET, null, null, null))
+                .extracting(PayslipFactAggregateDTO::employerNumber, PayslipFactAggregateDTO::monthKey)
+                .containsExactly(
+                        tuple("E1", "2024-01"),
+                        tuple("E2", "2024-02"),
+                        tuple("E9", "2024-01"));
+        reopened.close();
+    }
+
+    @Test
+    void recordsEachFileOnceIncludingAcrossRestarts() throws IOException {
+        PayslipFactStore store = open();
+        assertThat(store.record(sha(1), payslip("E1", "100", "2024-01-31", "2000.00"))).isTrue();
+        assertThat(store.record(sha(1), payslip("E1", "100", "2024-01-31", "2000.00"))).isFalse();
+        assertThat(store.record(ZERO_KEY_SHA, payslip("E1", "101", "2024-01-31", "2100.00"))).isTrue();
+        assertThat(store.record(ZERO_KEY_SHA, payslip("E1", "101", "2024-01-31", "2100.00"))).isFalse();
+        store.close();
+
+        PayslipFactStore reopened = open();
+
+        assertThat(reopened.size()).isEqualTo(2);
+        assertThat(reopened.record(sha(1), payslip("E1", "100", "2024-01-31", "2000.00"))).isFalse();
+        assertThat(reopened.record(ZERO_KEY_SHA, payslip("E1", "101", "2024-01-31", "2100.00"))).isFalse();
+        assertThat(reopened.record(sha(2), payslip("E1", "102", "2024-01-31", "2200.00"))).isTrue();
+        reopened.close();
+    }
+
+    private PayslipFactStore open() throws IOException {
+        FactStoreProperties properties = new FactStoreProperties();
+        properties.setFile(file().toString());
+        PayslipFactStore store = new PayslipFactStore(properties);
+        store.initialize();
+        return store;
+    }
+
+    private Path file() {
+        return directory.resolve("facts.bin");
+    }
+
+    private static String sha(int seed) {
+        return "%016x".formatted(seed * 0x9E3779B97F4A7C15L) + "0".repeat(48);
+    }
+
+    private static ExtractedPayslipDataDTO payslip(String employerNumber, String employeeNumber, String periodStart, String net) {
+        return payslip(employerNumber, employeeNumber, periodStart, net, 0, 0);
+    }
+
+    private static ExtractedPayslipDataDTO payslip(
+            String employerNumber, String employeeNumber, String periodStart, String net, int mealVouchers, int benefits) {
+        return ExtractedPayslipDataDTO.builder()
+                .employer(ExtractedPayslipDataDTO.EmployerInfo.builder().employerNumber(employerNumber).build())
+                .employment(ExtractedPayslipDataDTO.EmploymentInfo.builder().employeeNumber(employeeNumber).build())
+                .period(ExtractedPayslipDataDTO.PeriodInfo.builder()
+                        .periodStart(periodStart == null ? null : LocalDate.parse(periodStart))
+                        .build())
+                .financial(ExtractedPayslipDataDTO.FinancialInfo.builder().net(new BigDecimal(net)).build())
+                .extras(ExtractedPayslipDataDTO.Extras.builder()
+                        .mealVoucherCount(mealVouchers)
+                        .benefits(Collections.nCopies(benefits, ExtractedPayslipDataDTO.Extras.Benefit.builder().code("B").build()))
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,253 @@
+package com.app.payslip.poc.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Minimal OpenAI-compatible server for load tests: {@code /v1/chat/completions} (plain and streamed) and
+ * {@code /v1/embeddings}, each with a configurable delay standing in for model latency.
+ * <p>
+ * Chat requests that ask for structured output (the extraction prompts) get the payslip JSON the factory builds for
+ * their sequence number, so consecutive extractions return different payslips; everything else gets a short canned
+ * answer. Embeddings are derived from the input text, so the same text always gets the same
+ * vector, and share a common component so that retrieval finds matches above the similarity thresholds.
+ */
+public class FakeOpenAiServer implements AutoCloseable {
+
+    private static final String FORMAT_INSTRUCTIONS_MARKER = "RFC8259";
+    private static final String CANNED_ANSWER = "The net pay rose because the gross salary was indexed and the withholding tax grew less than the gross.";
+    private static final double SHARED_COMPONENT_WEIGHT = 0.8;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final IntFunction<String> payslipJson;
+    private final Duration chatLatency;
+    private final Duration embeddingLatency;
+    private final int dimensions;
+    private final float[] sharedComponent;
+
+    private final AtomicLong chatRequests = new AtomicLong();
+    private final AtomicInteger extractionSequence = new AtomicInteger();
+    private final AtomicLong embeddingRequests = new AtomicLong();
+    private final AtomicLong embeddedTexts = new AtomicLong();
+    private final AtomicInteger concurrentChats = new AtomicInteger();
+    private final AtomicInteger maxConcurrentChats = new AtomicInteger();
+
+    public FakeOpenAiServer(IntFunction<String> payslipJson, Duration chatLatency, Duration embeddingLatency, int dimensions) throws IOException {
+        this.payslipJson = payslipJson;
+        this.chatLatency = chatLatency;
+        this.embeddingLatency = embeddingLatency;
+        this.dimensions = dimensions;
+        this.sharedComponent = randomUnitVector(new Random(42), dimensions);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/chat/completions", this::chatCompletions);
+        server.createContext("/v1/embeddings", this::embeddings);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long chatRequests() {
+        return chatRequests.get();
+    }
+
+    /**
+     * Highest number of chat completions that were being served at the same time.
+     */
+    public int maxConcurrentChats() {
+        return maxConcurrentChats.get();
+    }
+
+    public long embeddingRequests() {
+        return embeddingRequests.get();
+    }
+
+    public long embeddedTexts() {
+        return embeddedTexts.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void chatCompletions(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            chatRequests.incrementAndGet();
+            maxConcurrentChats.accumulateAndGet(concurrentChats.incrementAndGet(), Math::max);
+            try {
+                sleep(chatLatency);
+            } finally {
+                concurrentChats.decrementAndGet();
+            }
+
+            String content = asksForStructuredOutput(request) ? payslipJson.apply(extractionSequence.getAndIncrement()) : CANNED_ANSWER;
+            int promptTokens = request.toString().length() / 4;
+            int completionTokens = content.length() / 4;
+
+            if (request.path("stream").asBoolean()) {
+                streamChat(exchange, content, promptTokens, completionTokens);
+            } else {
+                ObjectNode response = completionEnvelope("chat.completion");
+                ObjectNode choice = response.putArray("choices").addObject();
+                choice.put("index", 0);
+                choice.putObject("message").put("role", "assistant").put("content", content);
+                choice.put("finish_reason", "stop");
+                putUsage(response, promptTokens, completionTokens);
+                writeJson(exchange, response);
+            }
+        }
+    }
+
+    /**
+     * {@code ChatClient.entity(...)} appends format instructions to the prompt, or sets a response format.
+     */
+    private static boolean asksForStructuredOutput(JsonNode request) {
+        return request.has("response_format") || request.path("messages").toString().contains(FORMAT_INSTRUCTIONS_MARKER);
+    }
+
+    private void streamChat(HttpExchange exchange, String content, int promptTokens, int completionTokens) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody()) {
+            for (String token : content.split("(?<= )")) {
+                ObjectNode chunk = completionEnvelope("chat.completion.chunk");
+                ObjectNode choice = chunk.putArray("choices").addObject();
+                choice.put("index", 0);
+                choice.putObject("delta").put("content", token);
+                choice.putNull("finish_reason");
+                writeEvent(body, chunk.toString());
+            }
+            ObjectNode last = completionEnvelope("chat.completion.chunk");
+            ObjectNode choice = last.putArray("choices").addObject();
+            choice.put("index", 0);
+            choice.putObject("delta");
+            choice.put("finish_reason", "stop");
+            putUsage(last, promptTokens, completionTokens);
+            writeEvent(body, last.toString());
+            writeEvent(body, "[DONE]");
+        }
+    }
+
+    private void embeddings(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            embeddingRequests.incrementAndGet();
+            sleep(embeddingLatency);
+
+            List<String> inputs = new ArrayList<>();
+            if (request.path("input").isArray()) {
+                request.path("input").forEach(input -> inputs.add(input.asText()));
+            } else {
+                inputs.add(request.path("input").asText());
+            }
+            embeddedTexts.addAndGet(inputs.size());
+
+            ObjectNode response = objectMapper.createObjectNode();
+            response.put("object", "list");
+            response.put("model", request.path("model").asText("text-embedding-ada-002"));
+            ArrayNode data = response.putArray("data");
+            int tokens = 0;
+            for (int i = 0; i < inputs.size(); i++) {
+                ObjectNode embedding = data.addObject();
+                embedding.put("object", "embedding");
+                embedding.put("index", i);
+                ArrayNode vector = embedding.putArray("embedding");
+                for (float value : embed(inputs.get(i))) {
+                    vector.add(value);
+                }
+                tokens += inputs.get(i).length() / 4;
+            }
+            response.putObject("usage").put("prompt_tokens", tokens).put("total_tokens", tokens);
+            writeJson(exchange, response);
+        }
+    }
+
+    private float[] embed(String text) {
+        float[] own = randomUnitVector(new Random(text.hashCode()), dimensions);
+        float[] vector = new float[dimensions];
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) (SHARED_COMPONENT_WEIGHT * sharedComponent[i] + (1 - SHARED_COMPONENT_WEIGHT) * own[i]);
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static float[] randomUnitVector(Random random, int dimensions) {
+        float[] vector = new float[dimensions];
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private ObjectNode completionEnvelope(String object) {
+        ObjectNode envelope = objectMapper.createObjectNode();
+        envelope.put("id", "chatcmpl-load-test");
+        envelope.put("object", object);
+        envelope.put("created", System.currentTimeMillis() / 1000);
+        envelope.put("model", "gpt-4o");
+        return envelope;
+    }
+
+    private static void putUsage(ObjectNode response, int promptTokens, int completionTokens) {
+        response.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private void writeJson(HttpExchange exchange, JsonNode response) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void writeEvent(OutputStream body, String data) throws IOException {
+        body.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) return;
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.app.payslip.poc.loadtest;
+
+import com.app.payslip.poc.PayslipPocApplication;
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Drives {@code /extract}, {@code /ask} and {@code /chat} (or their {@code /async} variants) at a fixed concurrency against the real application, with
+ * {@link FakeOpenAiServer} in place of OpenAI and the embedded vector store in place of Elasticsearch, and reports
+ * p50/p95/p99 latency and throughput per endpoint. With the model latency configured to zero, the numbers are the
+ * pipeline's own overhead: rendering, indexing, retrieval, prompt building and HTTP.
+ * <p>
+ * Every upload gets a unique nonce appended to the sample file and every extraction returns a different employee and
+ * month, so no request is skipped as an already indexed payslip or an already recorded fact.
+ * <p>
+ * Run with {@code ./gradlew loadTest --args="--concurrency=32 --requests=500 --chat-latency-ms=800"}; see
+ * {@link Options} for all arguments. A high concurrency with a slow fake model (for example
+ * {@code --concurrency=2000 --chat-latency-ms=2000}) shows how many model calls the application keeps in flight at
+ * once, which is where virtual threads pay off.
+ */
+public class PayslipLoadTest {
+
+    private static final String ENDPOINT_EXTRACT = "extract";
+    private static final String ENDPOINT_ASK = "ask";
+    private static final String ENDPOINT_CHAT = "chat";
+    private static final String ASYNC_SUFFIX = "-async";
+    private static final int EMBEDDING_DIMENSIONS = 1536;
+    private static final int EMPLOYEES = 500;
+    private static final YearMonth FIRST_MONTH = YearMonth.of(2020, 1);
+    private static final AtomicLong UPLOAD_NONCE = new AtomicLong();
+    private static final JsonMapper JSON_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Path dataDirectory = Files.createTempDirectory("payslip-load-test");
+
+        try (FakeOpenAiServer openAi = new FakeOpenAiServer(PayslipLoadTest::cannedPayslipJson, options.chatLatency(), options.embeddingLatency(), EMBEDDING_DIMENSIONS);
+             ConfigurableApplicationContext application = startApplication(openAi, dataDirectory);
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            String baseUrl = "http://127.0.0.1:" + application.getEnvironment().getProperty("local.server.port") + "/api/payslip";
+            HttpClient httpClient = HttpClient.newBuilder().executor(clients).connectTimeout(Duration.ofSeconds(10)).build();
+            byte[] sample = new ClassPathResource("payslips/" + options.sample()).getContentAsByteArray();
+            String contentType = MediaTypeFactory.getMediaType(options.sample()).map(MediaType::toString).orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+
+            System.out.printf("Load test: concurrency %d, %d requests per endpoint (+%d warm-up), chat latency %d ms, embedding latency %d ms, sample %s%n%n",
+                    options.concurrency(), options.requests(), options.warmupRequests(), options.chatLatency().toMillis(),
+                    options.embeddingLatency().toMillis(), options.sample());
+            System.out.printf("%-12s %8s %7s %9s %9s %9s %9s %10s%n", "endpoint", "requests", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms", "req/s");
+
+            for (String endpoint : options.endpoints()) {
+                boolean async = endpoint.endsWith(ASYNC_SUFFIX);
+                String operation = async ? endpoint.substring(0, endpoint.length() - ASYNC_SUFFIX.length()) : endpoint;
+                String path = "/" + operation + (async ? "/async" : "");
+                IntFunction<HttpRequest> requestFactory = switch (operation) {
+                    case ENDPOINT_EXTRACT -> i -> multipart(baseUrl + path, Map.of("file", new Part(options.sample(), contentType, withNonce(sample))));
+                    case ENDPOINT_ASK -> i -> multipart(baseUrl + path, Map.of(
+                            "file", new Part(options.sample(), contentType, withNonce(sample)),
+                            "question", Part.text("Why is my net pay different this month? (" + i + ")")));
+                    case ENDPOINT_CHAT -> i -> multipart(baseUrl + path, Map.of(
+                            "previous", new Part(options.sample(), contentType, withNonce(sample)),
+                            "current", new Part(options.sample(), contentType, withNonce(sample)),
+                            "question", Part.text("What changed between these payslips? (" + i + ")")));
+                    default -> throw new IllegalArgumentException("Unknown endpoint '" + endpoint + "'");
+                };
+
+                run(httpClient, clients, requestFactory, options.warmupRequests(), options.concurrency());
+                Result result = run(httpClient, clients, requestFactory, options.requests(), options.concurrency());
+                System.out.printf("%-12s %8d %7d %9.1f %9.1f %9.1f %9.1f %10.1f%n", endpoint, result.requests(), result.errors(),
+                        result.percentileMillis(50), result.percentileMillis(95), result.percentileMillis(99),
+                        result.percentileMillis(100), result.throughput());
+            }
+
+            System.out.printf("%nFake OpenAI served %d chat completions (at most %d in flight) and %d embedding requests (%d texts)%n",
+                    openAi.chatRequests(), openAi.maxConcurrentChats(), openAi.embeddingRequests(), openAi.embeddedTexts());
+        } finally {
+            FileSystemUtils.deleteRecursively(dataDirectory);
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(FakeOpenAiServer openAi, Path dataDirectory) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.ai.openai.base-url", openAi.baseUrl());
+        properties.put("spring.ai.openai.api-key", "load-test");
+        properties.put("spring.docker.compose.enabled", false);
+        properties.put("spring.devtools.restart.enabled", false);
+        properties.put("payslip.extraction-cache.enabled", false);
+        properties.put("payslip.local-vector-store.directory", dataDirectory.resolve("vector-store").toString());
+        properties.put("payslip.fact-store.file", dataDirectory.resolve("payslip-facts.bin").toString());
+        properties.put("payslip.definition-index.vector-cache-file", dataDirectory.resolve("definition-vectors.json").toString());
+        properties.put("logging.level.com.app.payslip.poc", "WARN");
+
+        return new SpringApplicationBuilder(PayslipPocApplication.class)
+                .profiles("local-vector-store")
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * Keeps {@code concurrency} requests in flight until {@code requests} have completed.
+     */
+    private static Result run(HttpClient httpClient, ExecutorService clients, IntFunction<HttpRequest> requestFactory,
+                              int requests, int concurrency) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        long startNanos = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        for (int worker = 0; worker < Math.min(concurrency, requests); worker++) {
+            workers.add(Thread.ofVirtual().start(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    long requestStart = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = httpClient.send(requestFactory.apply(i), HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 300) errors.incrementAndGet();
+                    } catch (IOException exception) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException interruptedException) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    latencies[i] = System.nanoTime() - requestStart;
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new Result(latencies, errors.get(), System.nanoTime() - startNanos);
+    }
+
+    private static HttpRequest multipart(String url, Map<String, Part> parts) {
+        String boundary = "load-test-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        parts.forEach((name, part) -> {
+            String fileName = part.fileName() == null ? "" : "; filename=\"" + part.fileName() + "\"";
+            body.writeBytes(("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + name + "\"" + fileName + "\r\n"
+                    + "Content-Type: " + part.contentType() + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.writeBytes(part.content());
+            body.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        });
+        body.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMinutes(3))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    /**
+     * Appends a unique trailer after the end of the file. PNG and PDF readers ignore it, but it changes the file hash
+     * the payslip ids and the fact store key on.
+     */
+    private static byte[] withNonce(byte[] sample) {
+        byte[] nonce = ("\nload-test-" + UPLOAD_NONCE.incrementAndGet() + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] upload = Arrays.copyOf(sample, sample.length + nonce.length);
+        System.arraycopy(nonce, 0, upload, sample.length, nonce.length);
+        return upload;
+    }
+
+    /**
+     * The payslip of one of {@link #EMPLOYEES} employees, cycling through the employees before moving on to the next
+     * month, with amounts that differ per employee.
+     */
+    private static String cannedPayslipJson(int sequence) {
+        int employee = sequence % EMPLOYEES;
+        YearMonth month = FIRST_MONTH.plusMonths(sequence / EMPLOYEES);
+        BigDecimal raise = BigDecimal.valueOf(employee);
+        ExtractedPayslipDataDTO payslip = ExtractedPayslipDataDTO.builder()
+                .personal(PersonalInfo.builder().name("Employee " + employee).nationalId("85.07.30-%03d.%02d".formatted(employee, employee % 97)).maritalStatus("married").dependents(2)
+                        .address("Kerkstraat 12, 2000 Antwerpen").build())
+                .employer(EmployerInfo.builder().name("Acme Logistics NV").employerNumber("0123.456.789").address("Industrieweg 100, 9000 Gent").build())
+                .employment(EmploymentInfo.builder().employeeNumber("E-%06d".formatted(employee)).jobTitle("Warehouse supervisor").status("bediende")
+                        .payCategory("monthly").baseMonthlySalary(new BigDecimal("3900.00").add(raise)).build())
+                .period(PeriodInfo.builder().periodStart(month.atDay(1)).periodEnd(month.atEndOfMonth())
+                        .payDate(month.atEndOfMonth()).currency("EUR").build())
+                .financial(FinancialInfo.builder().gross(new BigDecimal("4250.00").add(raise)).taxable(new BigDecimal("3694.53"))
+                        .socialSecurity(new BigDecimal("555.47")).withholdingTax(new BigDecimal("987.45")).net(new BigDecimal("2678.10").add(raise))
+                        .paymentIban("BE68539007547034").paymentBic("GKCCBEBB").build())
+                .extras(Extras.builder().mealVoucherContributionEmployer(new BigDecimal("6.91")).mealVoucherContributionEmployee(new BigDecimal("1.09"))
+                        .mealVoucherCount(21)
+                        .benefits(List.of(
+                                Extras.Benefit.builder().code("1010").label("Company car").category("benefit in kind")
+                                        .amount(new BigDecimal("152.40")).direction("plus").taxable(true).build(),
+                                Extras.Benefit.builder().code("3020").label("Hospitalisation insurance").category("deduction")
+                                        .amount(new BigDecimal("12.30")).direction("minus").taxable(false).build()))
+                        .build())
+                .build();
+
+        try {
+            return JSON_MAPPER.writeValueAsString(payslip);
+        } catch (JsonProcessingException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private record Part(String fileName, String contentType, byte[] content) {
+
+        private static Part text(String value) {
+            return new Part(null, MediaType.TEXT_PLAIN_VALUE, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private record Result(long[] latencies, int errors, long elapsedNanos) {
+
+        private int requests() {
+            return latencies.length;
+        }
+
+        private double percentileMillis(int percentile) {
+            if (latencies.length == 0) return 0.0;
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int index = Math.max(0, (int) Math.ceil(percentile / 100.0 * sorted.length) - 1);
+            return sorted[index] / 1_000_000.0;
+        }
+
+        private double throughput() {
+            return elapsedNanos == 0 ? 0.0 : latencies.length / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+
+    /**
+     * {@code --concurrency}, {@code --requests}, {@code --warmup}, {@code --chat-latency-ms},
+     * {@code --embedding-latency-ms}, {@code --endpoints} (comma separated; {@code extract-async}, {@code ask-async}
+     * and {@code chat-async} select the asynchronous variants) and {@code --sample} (a file under
+     * {@code src/main/resources/payslips}).
+     */
+    private record Options(int concurrency, int requests, int warmupRequests, Duration chatLatency,
+                           Duration embeddingLatency, List<String> endpoints, String sample) {
+
+        private static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                String[] keyValue = arg.replaceFirst("^--", "").split("=", 2);
+                values.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "true");
+            }
+            return new Options(
+                    Integer.parseInt(values.getOrDefault("concurrency", "16")),
+                    Integer.parseInt(values.getOrDefault("requests", "200")),
+                    Integer.parseInt(values.getOrDefault("warmup", "20")),
+                    Duration.ofMillis(Long.parseLong(values.getOrDefault("chat-latency-ms", "0"))),
+                    Duration.ofMillis(Long.parseLong(values.getOrDefault("embedding-latency-ms", "0"))),
+                    List.of(values.getOrDefault("endpoints", String.join(",", ENDPOINT_EXTRACT, ENDPOINT_ASK, ENDPOINT_CHAT)).split(",")),
+                    values.getOrDefault("sample", "Loonbrief.png")
+            );
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.config.ExtractionCacheProperties;
+import com.app.payslip.poc.config.PromptConfigProperties;
+import com.app.payslip.poc.config.RenderingProperties;
+import com.app.payslip.poc.config.TextLayerProperties;
+import com.app.payslip.poc.model.ExtractedPayslipDataDTO;
+import com.app.payslip.poc.util.FileUtil.PageMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayslipExtractionCacheTests {
+
+    private static final String CHAT_MODEL = "gpt-4o";
+
+    @TempDir
+    Path directory;
+
+    private final ExtractionCacheProperties properties = new ExtractionCacheProperties();
+    private final PromptConfigProperties promptConfig = new PromptConfigProperties();
+    private final RenderingProperties renderingProperties = new RenderingProperties();
+    private final TextLayerProperties textLayerProperties = new TextLayerProperties();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @BeforeEach
+    void setUp() {
+        properties.setDiskDirectory(directory.toString());
+        PromptConfigProperties.PayslipPrompts prompts = new PromptConfigProperties.PayslipPrompts();
+        prompts.setSystemExtraction("system");
+        prompts.setUserExtraction("user");
+        prompts.setUserExtractionText("user text");
+        promptConfig.setPayslip(prompts);
+    }
+
+    @Test
+    void servesEntriesFromMemoryAndFromDiskAfterARestart() throws IOException {
+        PayslipExtractionCache cache = open(CHAT_MODEL);
+        cache.put(sha(1), PageMode.PAGES, payslip("E1"));
+
+        assertThat(cache.get(sha(1), PageMode.PAGES)).contains(payslip("E1"));
+        assertThat(cache.get(sha(2), PageMode.PAGES)).isEmpty();
+        assertThat(open(CHAT_MODEL).get(sha(1), PageMode.PAGES)).contains(payslip("E1"));
+    }
+
+    @Test
+    void keysEntriesOnTheSettingsThatShapeTheResult() throws IOException {
+        PayslipExtractionCache cache = open(CHAT_MODEL);
+        cache.put(sha(1), PageMode.PAGES, payslip("E1"));
+
+        assertThat(cache.get(sha(1), null)).as("default page mode").contains(payslip("E1"));
+        assertThat(cache.get(sha(1), PageMode.TILED)).as("other page mode").isEmpty();
+        assertThat(open("gpt-4o-mini").get(sha(1), PageMode.PAGES)).as("other chat model").isEmpty();
+
+        promptConfig.getPayslip().setUserExtraction("changed user prompt");
+        assertThat(open(CHAT_MODEL).get(sha(1), PageMode.PAGES)).as("other prompt").isEmpty();
+
+        promptConfig.getPayslip().setUserExtraction("user");
+        renderingProperties.setDpi(150);
+        assertThat(open(CHAT_MODEL).get(sha(1), PageMode.PAGES)).as("other render settings").isEmpty();
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedDiskEntriesOverTheSizeLimit() throws IOException {
+        PayslipExtractionCache cache = open(CHAT_MODEL);
+        cache.put(sha(1), PageMode.PAGES, payslip("E1"));
+        cache.put(sha(2), PageMode.PAGES, payslip("E2"));
+        Path first = entry(sha(1));
+        Path second = entry(sha(2));
+        Files.setLastModifiedTime(first, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        Files.setLastModifiedTime(second, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+
+        // A disk hit marks the first entry as recently used, so the second one is now the oldest.
+        properties.setDiskMaxBytes(Files.size(first) * 5 / 2);
+        PayslipExtractionCache restarted = open(CHAT_MODEL);
+        assertThat(restarted.get(sha(1), PageMode.PAGES)).isPresent();
+        restarted.put(sha(3), PageMode.PAGES, payslip("E3"));
+
+        assertThat(entries()).containsExactlyInAnyOrder(first, entry(sha(3)));
+        assertThat(open(CHAT_MODEL).get(sha(2), PageMode.PAGES)).isEmpty();
+    }
+
+    @Test
+    void deletesStaleTempFilesOnStartup() throws IOException {
+        Path stale = Files.writeString(directory.resolve("left-over.tmp"), "{\"partial\":");
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+        Path inProgress = Files.writeString(directory.resolve("in-progress.tmp"), "{\"partial\":");
+
+        open(CHAT_MODEL);
+
+        assertThat(stale).doesNotExist();
+        assertThat(inProgress).exists();
+    }
+
+    @Test
+    void leavesNoTempFilesBehindAfterWriting() throws IOException {
+        PayslipExtractionCache cache = open(CHAT_MODEL);
+        cache.put(sha(1), PageMode.PAGES, payslip("E1"));
+        cache.put(sha(1), PageMode.PAGES, payslip("E1"));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).containsExactly(entry(sha(1)));
+        }
+    }
+
+    private PayslipExtractionCache open(String chatModelName) throws IOException {
+        PayslipExtractionCache cache = new PayslipExtractionCache(
+                properties, promptConfig, renderingProperties, textLayerProperties, objectMapper, chatModelName);
+        cache.initialize();
+        return cache;
+    }
+
+    private Path entry(String fileSha256) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(fileSha256 + "-")).findFirst().orElseThrow();
+        }
+    }
+
+    private List<Path> entries() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    private static String sha(int seed) {
+        return "%064x".formatted(seed);
+    }
+
+    private static ExtractedPayslipDataDTO payslip(String employerNumber) {
+        return ExtractedPayslipDataDTO.builder()
+                .employer(ExtractedPayslipDataDTO.EmployerInfo.builder().employerNumber(employerNumber).build())
+                .build();
+    }
+}
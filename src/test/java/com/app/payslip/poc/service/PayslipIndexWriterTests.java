@@ -0,0 +1,237 @@
+package com.app.payslip.poc.service;
+
+import com.app.payslip.poc.config.IndexWriterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PayslipIndexWriterTests {
+
+    private final BlockingVectorStore vectorStore = new BlockingVectorStore();
+    private final IndexWriterProperties properties = new IndexWriterProperties();
+    private PayslipIndexWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        vectorStore.release();
+        if (writer != null) writer.stop();
+    }
+
+    @Test
+    void writesALonePayslipWithoutWaitingForTheBatchDelay() throws Exception {
+        properties.setMaxBatchDelay(Duration.ofSeconds(2));
+        vectorStore.release();
+        start();
+
+        long startNanos = System.nanoTime();
+        writer.submit(payslip("a", 2)).get(5, TimeUnit.SECONDS);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - startNanos)).isLessThan(Duration.ofSeconds(1));
+        assertThat(vectorStore.batches).containsExactly(List.of("a-0", "a-1"));
+    }
+
+    @Test
+    void coalescesPayslipsQueuedWhileABatchIsBeingWritten() throws Exception {
+        properties.setMaxBatchDelay(Duration.ofMillis(50));
+        start();
+
+        CompletableFuture<Void> first = writer.submit(payslip("a", 1));
+        vectorStore.awaitFirstWrite();
+        List<CompletableFuture<Void>> queued = List.of(
+                writer.submit(payslip("b", 1)),
+                writer.submit(payslip("c", 2)),
+                writer.submit(payslip("d", 1)));
+        vectorStore.release();
+
+        first.get(5, TimeUnit.SECONDS);
+        CompletableFuture.allOf(queued.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        assertThat(vectorStore.batches).containsExactly(
+                List.of("a-0"),
+                List.of("b-0", "c-0", "c-1", "d-0"));
+    }
+
+    @Test
+    void capsABatchAtTheMaximumDocumentCount() throws Exception {
+        properties.setMaxBatchDocuments(3);
+        start();
+
+        writer.submit(payslip("a", 1));
+        vectorStore.awaitFirstWrite();
+        List<CompletableFuture<Void>> queued = List.of(
+                writer.submit(payslip("b", 2)),
+                writer.submit(payslip("c", 2)),
+                writer.submit(payslip("d", 1)));
+        vectorStore.release();
+
+        CompletableFuture.allOf(queued.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        assertThat(vectorStore.batches).containsExactly(
+                List.of("a-0"),
+                List.of("b-0", "b-1", "c-0", "c-1"),
+                List.of("d-0"));
+    }
+
+    @Test
+    void rejectsWhenTheQueueStaysFull() throws Exception {
+        properties.setQueueCapacity(1);
+        properties.setEnqueueTimeout(Duration.ofMillis(50));
+        start();
+
+        CompletableFuture<Void> first = writer.submit(payslip("a", 1));
+        vectorStore.awaitFirstWrite();
+        CompletableFuture<Void> queued = writer.submit(payslip("b", 1));
+        CompletableFuture<Void> rejected = writer.submit(payslip("c", 1));
+
+        assertThat(rejected).isCompletedExceptionally();
+        assertThatThrownBy(rejected::get).hasCauseInstanceOf(RejectedExecutionException.class);
+        vectorStore.release();
+        first.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void flushesQueuedPayslipsOnStopAndRejectsNewOnes() throws Exception {
+        start();
+
+        CompletableFuture<Void> first = writer.submit(payslip("a", 1));
+        vectorStore.awaitFirstWrite();
+        List<CompletableFuture<Void>> queued = List.of(writer.submit(payslip("b", 1)), writer.submit(payslip("c", 1)));
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(() -> {
+            try {
+                writer.stop();
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(100);
+        vectorStore.release();
+        stopped.get(5, TimeUnit.SECONDS);
+
+        assertThat(first).isCompleted();
+        assertThat(queued).allSatisfy(future -> assertThat(future).isCompleted());
+        assertThat(vectorStore.batches.stream().flatMap(List::stream)).containsExactlyInAnyOrder("a-0", "b-0", "c-0");
+        assertThat(writer.submit(payslip("d", 1))).isCompletedExceptionally();
+    }
+
+    @Test
+    void failsOnlyThePayslipTheStoreKeepsRejecting() throws Exception {
+        properties.setMaxAttempts(2);
+        properties.setRetryBackoff(Duration.ofMillis(1));
+        start();
+
+        writer.submit(payslip("a", 1));
+        vectorStore.awaitFirstWrite();
+        CompletableFuture<Void> poisoned = writer.submit(payslip("poison", 1));
+        CompletableFuture<Void> healthy = writer.submit(payslip("b", 2));
+        vectorStore.release();
+
+        healthy.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> poisoned.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("poison");
+        assertThat(vectorStore.batches).containsExactly(List.of("a-0"), List.of("b-0", "b-1"));
+    }
+
+    @Test
+    void keepsWritingAfterTheStoreThrowsAnError() throws Exception {
+        vectorStore.release();
+        start();
+
+        CompletableFuture<Void> fatal = writer.submit(payslip("fatal", 1));
+        assertThatThrownBy(() -> fatal.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(LinkageError.class);
+
+        writer.submit(payslip("a", 1)).get(5, TimeUnit.SECONDS);
+        assertThat(vectorStore.batches).containsExactly(List.of("a-0"));
+    }
+
+    private void start() {
+        writer = new PayslipIndexWriter(vectorStore, properties, new PayslipMetrics(new SimpleMeterRegistry()));
+        writer.start();
+    }
+
+    private static List<Document> payslip(String name, int sections) {
+        List<Document> documents = new ArrayList<>();
+        for (int section = 0; section < sections; section++) {
+            documents.add(new Document(name + "-" + section, name + " section " + section, Map.of()));
+        }
+        return documents;
+    }
+
+    /**
+     * Holds the first write until {@link #release()}, so the tests can queue payslips behind a busy writer. Rejects
+     * {@code poison} documents with an exception and {@code fatal} ones with an {@link Error}.
+     */
+    private static final class BlockingVectorStore implements VectorStore {
+
+        private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicBoolean firstWrite = new AtomicBoolean(true);
+        private final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public void add(List<Document> documents) {
+            if (firstWrite.compareAndSet(true, false)) {
+                firstWriteStarted.countDown();
+                try {
+                    released.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            documents.stream()
+                    .filter(document -> document.getId().startsWith("fatal"))
+                    .findFirst()
+                    .ifPresent(document -> {
+                        throw new LinkageError("Broken " + document.getId());
+                    });
+            documents.stream()
+                    .filter(document -> document.getId().startsWith("poison"))
+                    .findFirst()
+                    .ifPresent(document -> {
+                        throw new IllegalStateException("Rejected " + document.getId());
+                    });
+            batches.add(documents.stream().map(Document::getId).toList());
+        }
+
+        void awaitFirstWrite() throws InterruptedException {
+            assertThat(firstWriteStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            return List.of();
+        }
+    }
+}
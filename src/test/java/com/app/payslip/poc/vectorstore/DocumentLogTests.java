@@ -0,0 +1,85 @@
+package com.app.payslip.poc.vectorstore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class DocumentLogTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysPutsAndTombstonesInOrder() throws IOException {
+        try (DocumentLog documentLog = new DocumentLog(directory, objectMapper)) {
+            documentLog.append(DocumentLog.Entry.put("a", 0, "first", Map.of("type", "section")));
+            documentLog.append(DocumentLog.Entry.put("b", 1, "second", Map.of()));
+            documentLog.append(DocumentLog.Entry.delete("a"));
+        }
+
+        List<DocumentLog.Entry> entries = replay();
+
+        assertThat(entries).extracting(DocumentLog.Entry::op, DocumentLog.Entry::id)
+                .containsExactly(
+                        tuple(DocumentLog.OP_PUT, "a"),
+                        tuple(DocumentLog.OP_PUT, "b"),
+                        tuple(DocumentLog.OP_DELETE, "a"));
+        assertThat(entries.get(0).metadata()).containsEntry("type", "section");
+        assertThat(entries.get(2).ordinal()).isNull();
+    }
+
+    @Test
+    void dropsATornLastLineAndKeepsAppendingAfterIt() throws IOException {
+        try (DocumentLog documentLog = new DocumentLog(directory, objectMapper)) {
+            documentLog.append(DocumentLog.Entry.put("a", 0, "complete", Map.of()));
+        }
+        Files.writeString(logFile(), "{\"op\":\"put\",\"id\":\"b\",\"ordi", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        long completeLength = Files.readString(logFile()).indexOf('\n') + 1;
+
+        try (DocumentLog documentLog = new DocumentLog(directory, objectMapper)) {
+            assertThat(Files.size(logFile())).isEqualTo(completeLength);
+            documentLog.append(DocumentLog.Entry.put("c", 1, "after the crash", Map.of()));
+        }
+
+        assertThat(replay()).extracting(DocumentLog.Entry::id).containsExactly("a", "c");
+    }
+
+    @Test
+    void skipsUnreadableLinesInTheMiddle() throws IOException {
+        try (DocumentLog documentLog = new DocumentLog(directory, objectMapper)) {
+            documentLog.append(DocumentLog.Entry.put("a", 0, "first", Map.of()));
+        }
+        Files.writeString(logFile(), "not json\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        try (DocumentLog documentLog = new DocumentLog(directory, objectMapper)) {
+            documentLog.append(DocumentLog.Entry.put("b", 1, "second", Map.of()));
+        }
+
+        assertThat(replay()).extracting(DocumentLog.Entry::id).containsExactly("a", "b");
+    }
+
+    private List<DocumentLog.Entry> replay() throws IOException {
+        List<DocumentLog.Entry> entries = new ArrayList<>();
+        try (DocumentLog documentLog = new DocumentLog(directory, objectMapper)) {
+            documentLog.replay(entries::add);
+        }
+        return entries;
+    }
+
+    private Path logFile() {
+        return directory.resolve("documents.jsonl");
+    }
+}
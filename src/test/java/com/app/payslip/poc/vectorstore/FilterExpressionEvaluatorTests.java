@@ -0,0 +1,95 @@
+package com.app.payslip.poc.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilterExpressionEvaluatorTests {
+
+    private static final Map<String, Object> METADATA = Map.of(
+            "period.monthKey", "2024-03",
+            "personal.nationalId", "85.07.30-033.61",
+            "dependents", 2,
+            "gross", 4250.0,
+            "code", "10"
+    );
+
+    private final FilterExpressionBuilder builder = new FilterExpressionBuilder();
+
+    @Test
+    void equalityAndInequality() {
+        assertThat(matches(builder.eq("period.monthKey", "2024-03"))).isTrue();
+        assertThat(matches(builder.eq("period.monthKey", "2024-04"))).isFalse();
+        assertThat(matches(builder.ne("period.monthKey", "2024-04"))).isTrue();
+        assertThat(matches(builder.ne("period.monthKey", "2024-03"))).isFalse();
+    }
+
+    @Test
+    void numbersCompareByValueRegardlessOfBoxedType() {
+        assertThat(matches(builder.eq("dependents", 2L))).isTrue();
+        assertThat(matches(builder.eq("dependents", 2.0))).isTrue();
+        assertThat(matches(builder.eq("gross", 4250))).isTrue();
+        assertThat(matches(builder.gt("gross", 4000))).isTrue();
+        assertThat(matches(builder.gte("gross", 4250L))).isTrue();
+        assertThat(matches(builder.lt("dependents", 2))).isFalse();
+        assertThat(matches(builder.lte("dependents", 2.0f))).isTrue();
+    }
+
+    @Test
+    void stringsCompareByStringFormEvenWhenTheyLookNumeric() {
+        assertThat(matches(builder.lt("code", "9"))).isTrue();
+        assertThat(matches(builder.gt("code", "9"))).isFalse();
+        assertThat(matches(builder.gte("period.monthKey", "2024-01"))).isTrue();
+        assertThat(matches(builder.eq("dependents", "2"))).isTrue();
+        assertThat(matches(builder.eq("code", 10))).isTrue();
+    }
+
+    @Test
+    void rangesNeverMatchAMissingKey() {
+        assertThat(matches(builder.gt("missing", 0))).isFalse();
+        assertThat(matches(builder.lte("missing", "z"))).isFalse();
+        assertThat(matches(builder.ne("missing", "anything"))).isTrue();
+    }
+
+    @Test
+    void inAndNotIn() {
+        assertThat(matches(builder.in("period.monthKey", "2024-02", "2024-03"))).isTrue();
+        assertThat(matches(builder.in("period.monthKey", "2024-01", "2024-02"))).isFalse();
+        assertThat(matches(builder.in("dependents", 1, 2L))).isTrue();
+        assertThat(matches(builder.nin("period.monthKey", "2024-01", "2024-02"))).isTrue();
+        assertThat(matches(builder.nin("period.monthKey", "2024-03"))).isFalse();
+    }
+
+    @Test
+    void andOrNot() {
+        FilterExpressionBuilder.Op month = builder.eq("period.monthKey", "2024-03");
+        FilterExpressionBuilder.Op otherPerson = builder.eq("personal.nationalId", "00.00.00-000.00");
+
+        assertThat(matches(builder.and(month, otherPerson))).isFalse();
+        assertThat(matches(builder.or(month, otherPerson))).isTrue();
+        assertThat(matches(builder.not(otherPerson))).isTrue();
+        assertThat(matches(builder.not(builder.or(month, otherPerson)))).isFalse();
+    }
+
+    @Test
+    void evaluatesParsedTextFiltersWithQuotedKeysAndGroups() {
+        Filter.Expression expression = new FilterExpressionTextParser()
+                .parse("'period.monthKey' == '2024-03' && (dependents > 5 || 'personal.nationalId' == '85.07.30-033.61')");
+
+        assertThat(FilterExpressionEvaluator.matches(expression, METADATA)).isTrue();
+    }
+
+    @Test
+    void nullExpressionMatchesEverything() {
+        assertThat(FilterExpressionEvaluator.matches(null, METADATA)).isTrue();
+    }
+
+    private static boolean matches(FilterExpressionBuilder.Op op) {
+        return FilterExpressionEvaluator.matches(op.build(), METADATA);
+    }
+}
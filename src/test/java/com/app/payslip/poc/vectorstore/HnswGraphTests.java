@@ -0,0 +1,105 @@
+package com.app.payslip.poc.vectorstore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class HnswGraphTests {
+
+    private static final int DIMENSIONS = 32;
+    private static final int VECTOR_COUNT = 3_000;
+    private static final int QUERY_COUNT = 100;
+    private static final int TOP_K = 10;
+
+    @TempDir
+    Path directory;
+
+    private VectorSegmentStorage vectors;
+    private HnswGraph graph;
+    private final Random random = new Random(7);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        vectors = new VectorSegmentStorage(directory, DIMENSIONS);
+        graph = new HnswGraph(vectors, 16, 100);
+        for (int i = 0; i < VECTOR_COUNT; i++) {
+            graph.insert(vectors.append(randomUnitVector()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        vectors.close();
+    }
+
+    @Test
+    void searchRecallsMostOfTheExactTopK() {
+        int found = 0;
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            float[] query = randomUnitVector();
+            Set<Integer> exact = exactTopK(query, TOP_K, ordinal -> true);
+            found += (int) graph.search(query, TOP_K, 64, ordinal -> true).stream()
+                    .filter(candidate -> exact.contains(candidate.node()))
+                    .count();
+        }
+
+        double recall = (double) found / (QUERY_COUNT * TOP_K);
+        assertThat(recall).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void searchReturnsBestFirstAndOnlyAcceptedNodes() {
+        float[] query = randomUnitVector();
+
+        List<HnswGraph.Candidate> results = graph.search(query, TOP_K, 200, ordinal -> ordinal % 2 == 0);
+
+        assertThat(results).hasSize(TOP_K);
+        assertThat(results).allMatch(candidate -> candidate.node() % 2 == 0);
+        assertThat(results).isSortedAccordingTo(Comparator.comparingDouble(HnswGraph.Candidate::similarity).reversed());
+        assertThat(results.get(0).node()).isIn(exactTopK(query, TOP_K, ordinal -> ordinal % 2 == 0));
+    }
+
+    @Test
+    void storedVectorIsItsOwnNearestNeighbour() {
+        int ordinal = VECTOR_COUNT / 2;
+
+        List<HnswGraph.Candidate> results = graph.search(vectors.read(ordinal), 1, 64, node -> true);
+
+        assertThat(results).extracting(HnswGraph.Candidate::node).containsExactly(ordinal);
+        assertThat(results.get(0).similarity()).isCloseTo(1.0f, offset(1e-5f));
+    }
+
+    private Set<Integer> exactTopK(float[] query, int k, IntPredicate accept) {
+        List<Integer> ordinals = new ArrayList<>();
+        for (int ordinal = 0; ordinal < vectors.size(); ordinal++) {
+            if (accept.test(ordinal)) ordinals.add(ordinal);
+        }
+        return ordinals.stream()
+                .sorted(Comparator.comparingDouble((Integer ordinal) -> vectors.dot(query, ordinal)).reversed())
+                .limit(k)
+                .collect(Collectors.toSet());
+    }
+
+    private float[] randomUnitVector() {
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+}
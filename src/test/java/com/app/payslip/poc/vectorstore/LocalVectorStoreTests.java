@@ -0,0 +1,206 @@
+package com.app.payslip.poc.vectorstore;
+
+import com.app.payslip.poc.config.LocalVectorStoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class LocalVectorStoreTests {
+
+    private static final int DIMENSIONS = 16;
+
+    private final FilterExpressionBuilder builder = new FilterExpressionBuilder();
+    private final HashEmbeddingModel embeddingModel = new HashEmbeddingModel();
+
+    @TempDir
+    Path directory;
+
+    private LocalVectorStoreProperties properties;
+    private LocalVectorStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = new LocalVectorStoreProperties();
+        properties.setDirectory(directory.toString());
+        properties.setDimensions(DIMENSIONS);
+        store = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void findsAddedDocumentsBySimilarity() {
+        store.add(List.of(section("a", "net pay", "2024-03"), section("b", "gross pay", "2024-03")));
+
+        List<Document> results = store.similaritySearch(SearchRequest.builder().query("net pay").topK(1).build());
+
+        assertThat(results).extracting(Document::getId).containsExactly("a");
+        assertThat(results.get(0).getScore()).isCloseTo(1.0, offset(1e-5));
+        assertThat(results.get(0).getText()).isEqualTo("net pay");
+        assertThat(results.get(0).getMetadata()).containsEntry("period.monthKey", "2024-03");
+    }
+
+    @Test
+    void addDeleteAndReopenKeepsOnlyLiveDocuments() throws IOException {
+        store.add(List.of(section("a", "net pay", "2024-03"), section("b", "gross pay", "2024-03"), section("c", "tax", "2024-04")));
+        store.delete(List.of("b"));
+        store.add(List.of(section("a", "net pay after correction", "2024-03")));
+
+        store.close();
+        store = open();
+
+        assertThat(store.existingIds(List.of("a", "b", "c"))).containsExactlyInAnyOrder("a", "c");
+        assertThat(store.findById("b")).isEmpty();
+        assertThat(store.findById("a")).get().extracting(Document::getText).isEqualTo("net pay after correction");
+        assertThat(store.similaritySearch(SearchRequest.builder().query("gross pay").topK(5).build()))
+                .extracting(Document::getId)
+                .containsExactlyInAnyOrder("a", "c");
+
+        store.add(List.of(section("d", "meal vouchers", "2024-04")));
+        assertThat(store.existingIds(List.of("d"))).containsExactly("d");
+    }
+
+    @Test
+    void filteredSearchAndScanOnlyReturnMatchingDocuments() {
+        store.add(List.of(
+                section("a", "net pay", "2024-03"),
+                section("b", "net pay", "2024-04"),
+                section("c", "gross pay", "2024-03")));
+
+        List<Document> results = store.similaritySearch(SearchRequest.builder()
+                .query("net pay")
+                .topK(5)
+                .filterExpression(builder.and(
+                        builder.eq("period.monthKey", "2024-03"),
+                        builder.ne("section", "gross")).build())
+                .build());
+        assertThat(results).extracting(Document::getId).containsExactly("a");
+
+        List<String> scanned = new ArrayList<>();
+        store.scan(builder.in("period.monthKey", "2024-04", "2024-05").build(), document -> scanned.add(document.getId()));
+        assertThat(scanned).containsExactly("b");
+    }
+
+    @Test
+    void indexedFiltersFollowReplacementsAndDeletes() throws IOException {
+        store.add(List.of(section("a", "net pay", "2024-03")));
+        store.add(List.of(section("a", "net pay", "2024-04")));
+        store.delete(builder.eq("period.monthKey", "2024-05").build());
+
+        assertThat(scan("2024-03")).isEmpty();
+        assertThat(scan("2024-04")).containsExactly("a");
+
+        store.delete(builder.eq("period.monthKey", "2024-04").build());
+        assertThat(scan("2024-04")).isEmpty();
+
+        store.close();
+        store = open();
+        assertThat(scan("2024-04")).isEmpty();
+    }
+
+    @Test
+    void similarityThresholdDropsWeakMatches() {
+        store.add(List.of(section("a", "net pay", "2024-03"), section("b", "something unrelated", "2024-03")));
+
+        List<Document> results = store.similaritySearch(SearchRequest.builder().query("net pay").topK(5).similarityThreshold(0.99).build());
+
+        assertThat(results).extracting(Document::getId).containsExactly("a");
+    }
+
+    @Test
+    void similarityThresholdAppliesToTheRawCosine() {
+        store.add(List.of(section("a", "net pay", "2024-03"), section("b", "something unrelated", "2024-03")));
+
+        // "something unrelated" has a cosine of about -0.18 to the query, a score of about 0.41: a cosine threshold of
+        // 0.3 drops it, a threshold on the score would not.
+        List<Document> results = store.similaritySearch(SearchRequest.builder().query("net pay").topK(5).similarityThreshold(0.3).build());
+
+        assertThat(results).extracting(Document::getId).containsExactly("a");
+    }
+
+    @Test
+    void addEmbedsDocumentsThroughTheBatchingEntryPoint() {
+        store.add(List.of(section("a", "net pay", "2024-03"), section("b", "gross pay", "2024-03")));
+
+        assertThat(embeddingModel.embeddedDocuments).extracting(Document::getId).containsExactly("a", "b");
+    }
+
+    private List<String> scan(String monthKey) {
+        List<String> ids = new ArrayList<>();
+        store.scan(builder.eq("period.monthKey", monthKey).build(), document -> ids.add(document.getId()));
+        return ids;
+    }
+
+    private LocalVectorStore open() throws IOException {
+        return new LocalVectorStore(embeddingModel, properties, new ObjectMapper());
+    }
+
+    private static Document section(String id, String text, String monthKey) {
+        return new Document(id, text, Map.of("period.monthKey", monthKey, "section", text.split(" ")[0], "docId", id));
+    }
+
+    /**
+     * Deterministic embeddings: the same text always maps to the same random vector, different texts to nearly
+     * orthogonal ones. Only the text after the metadata block of formatted document content is hashed, so a document
+     * and a query for its text get the same vector.
+     */
+    private static final class HashEmbeddingModel implements EmbeddingModel {
+
+        private final List<Document> embeddedDocuments = new ArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                String text = request.getInstructions().get(i);
+                Random random = new Random(text.substring(text.lastIndexOf("\n\n") + 1).strip().hashCode());
+                float[] vector = new float[DIMENSIONS];
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    vector[d] = (float) random.nextGaussian();
+                }
+                embeddings.add(new Embedding(vector, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+
+        @Override
+        public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+            embeddedDocuments.addAll(documents);
+            return EmbeddingModel.super.embed(documents, options, batchingStrategy);
+        }
+
+        @Override
+        public int dimensions() {
+            return DIMENSIONS;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.app.payslip.poc.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VectorSegmentStorageTests {
+
+    private static final int DIMENSIONS = 4;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendsAcrossSegmentsAndReopensWithTheSameVectors() throws IOException {
+        int count = VectorSegmentStorage.VECTORS_PER_SEGMENT + 10;
+
+        VectorSegmentStorage storage = new VectorSegmentStorage(directory, DIMENSIONS);
+        for (int i = 0; i < count; i++) {
+            assertThat(storage.append(vector(i))).isEqualTo(i);
+        }
+        storage.close();
+
+        assertThat(segmentFiles()).isEqualTo(2);
+
+        VectorSegmentStorage reopened = new VectorSegmentStorage(directory, DIMENSIONS);
+        assertThat(reopened.size()).isEqualTo(count);
+        assertThat(reopened.read(0)).containsExactly(vector(0));
+        assertThat(reopened.read(VectorSegmentStorage.VECTORS_PER_SEGMENT - 1)).containsExactly(vector(VectorSegmentStorage.VECTORS_PER_SEGMENT - 1));
+        assertThat(reopened.read(count - 1)).containsExactly(vector(count - 1));
+        assertThat(reopened.append(vector(count))).isEqualTo(count);
+        reopened.close();
+    }
+
+    @Test
+    void dotReadsFromTheMapping() throws IOException {
+        VectorSegmentStorage storage = new VectorSegmentStorage(directory, DIMENSIONS);
+        int ordinal = storage.append(new float[]{1f, 2f, 3f, 4f});
+
+        assertThat(storage.dot(new float[]{1f, 1f, 1f, 1f}, ordinal)).isEqualTo(10f);
+        storage.close();
+    }
+
+    @Test
+    void rejectsVectorsAndSegmentsOfOtherDimensions() throws IOException {
+        VectorSegmentStorage storage = new VectorSegmentStorage(directory, DIMENSIONS);
+        assertThatThrownBy(() -> storage.append(new float[DIMENSIONS + 1])).isInstanceOf(IllegalArgumentException.class);
+        storage.append(vector(1));
+        storage.close();
+
+        assertThatThrownBy(() -> new VectorSegmentStorage(directory, DIMENSIONS * 2)).isInstanceOf(IOException.class);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+
+    private static float[] vector(int seed) {
+        return new float[]{seed, seed + 0.25f, -seed, 1f};
+    }
+}